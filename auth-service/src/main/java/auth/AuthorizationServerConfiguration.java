@@ -1,5 +1,6 @@
 package auth;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,6 +16,10 @@ import org.springframework.security.oauth2
         .config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2
         .provider.ClientDetailsService;
+import org.springframework.security.oauth2
+        .provider.token.TokenStore;
+import org.springframework.security.oauth2
+        .provider.token.store.JwtAccessTokenConverter;
 //@formatter:on
 
 @Configuration
@@ -26,12 +31,20 @@ class AuthorizationServerConfiguration extends
 
  private final ClientDetailsService clientDetailsService;
 
+ private final JwtAccessTokenConverter accessTokenConverter;
+
+ private final TokenStore tokenStore;
+
  @Autowired
  public AuthorizationServerConfiguration(
   AuthenticationManager authenticationManager,
-  ClientDetailsService clientDetailsService) {
+  ClientDetailsService clientDetailsService,
+  ObjectProvider<JwtAccessTokenConverter> accessTokenConverter,
+  ObjectProvider<TokenStore> tokenStore) {
   this.authenticationManager = authenticationManager;
   this.clientDetailsService = clientDetailsService;
+  this.accessTokenConverter = accessTokenConverter.getIfAvailable();
+  this.tokenStore = tokenStore.getIfAvailable();
  }
 
  @Override
@@ -45,5 +58,12 @@ class AuthorizationServerConfiguration extends
   throws Exception {
   // <2>
   endpoints.authenticationManager(this.authenticationManager);
+  // signed, self-contained tokens under the jwt profile
+  if (this.accessTokenConverter != null) {
+   endpoints.accessTokenConverter(this.accessTokenConverter);
+  }
+  if (this.tokenStore != null) {
+   endpoints.tokenStore(this.tokenStore);
+  }
  }
 }
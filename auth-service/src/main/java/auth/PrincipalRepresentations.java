@@ -0,0 +1,134 @@
+package auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+//@formatter:off
+import org.springframework.security.oauth2
+        .config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
+import org.springframework.security.oauth2
+        .provider.OAuth2Authentication;
+import org.springframework.security.oauth2
+        .provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.security.oauth2
+        .provider.token.TokenStore;
+//@formatter:on
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// the compact principal for each token, serialized once and kept until the
+// token expires: a token's authentication can't change during its lifetime,
+// so neither can its representation. tokens are keyed by their SHA-256, and
+// only the most recently used ones are kept.
+@Component
+class PrincipalRepresentations {
+
+ static final int VERSION = 1;
+
+ // tokens without an expiry are represented afresh this often (ms)
+ private static final long UNBOUNDED_TTL = 5 * 60 * 1000L;
+
+ private static final int MAX_SIZE = 10_000;
+
+ private final AuthorizationServerEndpointsConfiguration endpoints;
+
+ private final ObjectMapper objectMapper;
+
+ // a token that's gone quiet has usually expired, or its holder has
+ // stopped asking
+ private final Cache<String, Representation> representations = CacheBuilder
+  .newBuilder().maximumSize(MAX_SIZE)
+  .expireAfterAccess(UNBOUNDED_TTL, TimeUnit.MILLISECONDS).build();
+
+ @Autowired
+ public PrincipalRepresentations(
+  AuthorizationServerEndpointsConfiguration endpoints,
+  ObjectMapper objectMapper) {
+  this.endpoints = endpoints;
+  this.objectMapper = objectMapper;
+ }
+
+ Representation representation(OAuth2Authentication authentication) {
+  String token = ((OAuth2AuthenticationDetails) authentication.getDetails())
+   .getTokenValue();
+  String key = hash(token);
+  Representation representation = this.representations.getIfPresent(key);
+  if (representation == null || representation.isExpired()) {
+   representation = this.build(token, authentication);
+   this.representations.put(key, representation);
+  }
+  return representation;
+ }
+
+ // the token store the endpoints issue tokens into, whichever it is; looked
+ // up late, as the endpoints are only configured once the context is up
+ private Representation build(String token,
+  OAuth2Authentication authentication) {
+  TokenStore tokenStore = this.endpoints.getEndpointsConfigurer()
+   .getTokenStore();
+  OAuth2AccessToken accessToken = tokenStore.readAccessToken(token);
+  long expiresAt = accessToken != null && accessToken.getExpiration() != null
+   ? accessToken.getExpiration().getTime() : System.currentTimeMillis()
+    + UNBOUNDED_TTL;
+  List<String> authorities = new ArrayList<>();
+  for (GrantedAuthority authority : authentication.getAuthorities()) {
+   authorities.add(authority.getAuthority());
+  }
+  Map<String, Object> principal = new LinkedHashMap<>();
+  principal.put("v", VERSION);
+  principal.put("name", authentication.getName());
+  principal.put("authorities", authorities);
+  principal.put("exp", expiresAt / 1000);
+  try {
+   byte[] body = this.objectMapper.writeValueAsBytes(principal);
+   return new Representation(body, '"' + DigestUtils.md5DigestAsHex(body)
+    + '"', expiresAt);
+  }
+  catch (JsonProcessingException e) {
+   throw new IllegalStateException(e);
+  }
+ }
+
+ private static String hash(String token) {
+  try {
+   return Base64.getEncoder().encodeToString(MessageDigest.getInstance(
+    "SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+  }
+  catch (NoSuchAlgorithmException e) {
+   throw new IllegalStateException(e);
+  }
+ }
+
+ static class Representation {
+
+  final byte[] body;
+
+  final String etag;
+
+  final long expiresAt;
+
+  Representation(byte[] body, String etag, long expiresAt) {
+   this.body = body;
+   this.etag = etag;
+   this.expiresAt = expiresAt;
+  }
+
+  boolean isExpired() {
+   return System.currentTimeMillis() >= this.expiresAt;
+  }
+ }
+}
@@ -1,17 +1,48 @@
 package auth;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.security.Principal;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 class PrincipalRestController {
 
+ static final String PRINCIPAL_MEDIA_TYPE =
+  "application/vnd.cnj.principal.v1+json";
+
+ private final PrincipalRepresentations representations;
+
+ @Autowired
+ public PrincipalRestController(PrincipalRepresentations representations) {
+  this.representations = representations;
+ }
+
  // <1>
  @RequestMapping("/user")
  Principal principal(Principal p) {
   return p;
  }
 
+ // just the name, authorities and expiry. the body is private to the
+ // bearer and good until the token expires; a client holding the ETag
+ // gets a 304.
+ @GetMapping(value = "/principal/v1", produces = { PRINCIPAL_MEDIA_TYPE,
+  MediaType.APPLICATION_JSON_VALUE })
+ ResponseEntity<byte[]> compactPrincipal(OAuth2Authentication authentication) {
+  PrincipalRepresentations.Representation representation = this.representations
+   .representation(authentication);
+  long maxAge = Math.max(0,
+   representation.expiresAt - System.currentTimeMillis()) / 1000;
+  return ResponseEntity.ok().eTag(representation.etag)
+   .cacheControl(CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePrivate())
+   .body(representation.body);
+ }
 }
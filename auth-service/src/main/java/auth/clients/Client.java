@@ -3,11 +3,14 @@ package auth.clients;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.DomainEvents;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import java.util.Collection;
+import java.util.Collections;
 
 @Data
 @AllArgsConstructor
@@ -40,4 +43,10 @@ public class Client {
   this.clientId = clientId;
   this.secret = clientSecret;
  }
+
+ // lets the in-memory client index recompile this client on save
+ @DomainEvents
+ Collection<ClientSavedEvent> savedEvents() {
+  return Collections.singleton(new ClientSavedEvent(this));
+ }
 }
@@ -0,0 +1,145 @@
+package auth.clients;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// every client compiled up front and looked up from memory, so token and
+// authorize requests touch neither the database nor the load balancer.
+// saves recompile their client right away; the periodic reload picks up
+// deletes and writes made by other instances. redirect uris follow the
+// registry on each heartbeat instead of being chosen per request.
+class ClientDetailsIndex implements ClientDetailsService {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final ClientRepository clientRepository;
+
+ private final DiscoveryClient discoveryClient;
+
+ private final ClientProperties properties;
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "client-details");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ // guarded by this; readers only ever see the published maps
+ private Map<String, Client> clients = Collections.emptyMap();
+
+ private volatile Set<String> redirectUris = Collections.emptySet();
+
+ private volatile Map<String, ClientDetails> details = Collections.emptyMap();
+
+ ClientDetailsIndex(ClientRepository clientRepository,
+  DiscoveryClient discoveryClient, ClientProperties properties) {
+  this.clientRepository = clientRepository;
+  this.discoveryClient = discoveryClient;
+  this.properties = properties;
+ }
+
+ @PostConstruct
+ public void start() {
+  this.refreshRedirectUris();
+  this.reload();
+  this.scheduler.scheduleWithFixedDelay(this::reload,
+   this.properties.getRefreshInterval(), this.properties.getRefreshInterval(),
+   TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ @Override
+ public ClientDetails loadClientByClientId(String clientId)
+  throws ClientRegistrationException {
+  ClientDetails clientDetails = this.details.get(clientId);
+  if (clientDetails == null) {
+   throw new ClientRegistrationException(String.format(
+    "no client %s registered", clientId));
+  }
+  // <2>
+  if (clientDetails.getRegisteredRedirectUri().isEmpty()) {
+   throw new ClientRegistrationException("couldn't find and bind a "
+    + this.properties.getRedirectServiceId() + " IP");
+  }
+  return clientDetails;
+ }
+
+ // Spring Data publishes the event inside the saving transaction, so wait
+ // for it to commit; a save outside any transaction is applied right away
+ @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT,
+  fallbackExecution = true)
+ public synchronized void onClientSaved(ClientSavedEvent event) {
+  Map<String, Client> clients = new HashMap<>(this.clients);
+  clients.put(event.getClient().getClientId(), event.getClient());
+  this.publish(clients);
+ }
+
+ @EventListener(HeartbeatEvent.class)
+ public void onHeartbeatEvent(HeartbeatEvent event) {
+  this.refreshRedirectUris();
+ }
+
+ private void refreshRedirectUris() {
+  try {
+   Set<String> redirectUris = this.discoveryClient
+    .getInstances(this.properties.getRedirectServiceId()).stream()
+    .map(si -> "http://" + si.getHost() + ':' + si.getPort() + '/')
+    .collect(Collectors.toCollection(TreeSet::new));
+   synchronized (this) {
+    if (!redirectUris.equals(this.redirectUris)) {
+     this.redirectUris = redirectUris;
+     this.publish(this.clients);
+    }
+   }
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't refresh the redirect uris", e);
+  }
+ }
+
+ private void reload() {
+  try {
+   Map<String, Client> clients = this.clientRepository.findAll().stream()
+    .collect(Collectors.toMap(Client::getClientId, c -> c, (a, b) -> b));
+   synchronized (this) {
+    this.publish(clients);
+   }
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't reload the registered clients", e);
+  }
+ }
+
+ private void publish(Map<String, Client> clients) {
+  Map<String, ClientDetails> details = new HashMap<>();
+  clients.forEach((clientId, client) -> details.put(clientId,
+   new CompiledClientDetails(client, this.redirectUris)));
+  this.clients = clients;
+  this.details = Collections.unmodifiableMap(details);
+ }
+}
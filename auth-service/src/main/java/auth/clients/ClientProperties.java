@@ -0,0 +1,16 @@
+package auth.clients;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("clients")
+public class ClientProperties {
+
+ // full reload from the database, catching deletes and other instances'
+ // writes (ms)
+ private long refreshInterval = 60_000;
+
+ // every instance of this service is a registered redirect uri
+ private String redirectServiceId = "greetings-client";
+}
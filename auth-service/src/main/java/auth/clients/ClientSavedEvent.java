@@ -0,0 +1,15 @@
+package auth.clients;
+
+// published by the repository whenever a Client is saved
+public class ClientSavedEvent {
+
+ private final Client client;
+
+ ClientSavedEvent(Client client) {
+  this.client = client;
+ }
+
+ public Client getClient() {
+  return this.client;
+ }
+}
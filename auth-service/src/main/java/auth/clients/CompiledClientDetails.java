@@ -0,0 +1,116 @@
+package auth.clients;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// a Client row parsed once into the shape the authorization server asks
+// for, with nothing left to change afterwards
+final class CompiledClientDetails implements ClientDetails {
+
+ private final BaseClientDetails details;
+
+ private final Set<String> resourceIds;
+
+ private final Set<String> scope;
+
+ private final Set<String> authorizedGrantTypes;
+
+ private final Set<String> registeredRedirectUri;
+
+ private final Collection<GrantedAuthority> authorities;
+
+ private final Map<String, Object> additionalInformation;
+
+ CompiledClientDetails(Client client, Set<String> redirectUris) {
+  BaseClientDetails details = new BaseClientDetails(client.getClientId(),
+   null, client.getScopes(), client.getAuthorizedGrantTypes(),
+   client.getAuthorities());
+  details.setClientSecret(client.getSecret());
+  // <1>
+  // details.setAutoApproveScopes
+  //    (Arrays.asList(client.getAutoApproveScopes().split(",")));
+  this.details = details;
+  this.resourceIds = Collections.unmodifiableSet(details.getResourceIds());
+  this.scope = Collections.unmodifiableSet(details.getScope());
+  this.authorizedGrantTypes = Collections.unmodifiableSet(details
+   .getAuthorizedGrantTypes());
+  this.registeredRedirectUri = Collections
+   .unmodifiableSet(new LinkedHashSet<>(redirectUris));
+  this.authorities = Collections.unmodifiableCollection(details
+   .getAuthorities());
+  this.additionalInformation = Collections.unmodifiableMap(details
+   .getAdditionalInformation());
+ }
+
+ @Override
+ public String getClientId() {
+  return this.details.getClientId();
+ }
+
+ @Override
+ public Set<String> getResourceIds() {
+  return this.resourceIds;
+ }
+
+ @Override
+ public boolean isSecretRequired() {
+  return this.details.isSecretRequired();
+ }
+
+ @Override
+ public String getClientSecret() {
+  return this.details.getClientSecret();
+ }
+
+ @Override
+ public boolean isScoped() {
+  return this.details.isScoped();
+ }
+
+ @Override
+ public Set<String> getScope() {
+  return this.scope;
+ }
+
+ @Override
+ public Set<String> getAuthorizedGrantTypes() {
+  return this.authorizedGrantTypes;
+ }
+
+ @Override
+ public Set<String> getRegisteredRedirectUri() {
+  return this.registeredRedirectUri;
+ }
+
+ @Override
+ public Collection<GrantedAuthority> getAuthorities() {
+  return this.authorities;
+ }
+
+ @Override
+ public Integer getAccessTokenValiditySeconds() {
+  return this.details.getAccessTokenValiditySeconds();
+ }
+
+ @Override
+ public Integer getRefreshTokenValiditySeconds() {
+  return this.details.getRefreshTokenValiditySeconds();
+ }
+
+ @Override
+ public boolean isAutoApprove(String scope) {
+  return this.details.isAutoApprove(scope);
+ }
+
+ @Override
+ public Map<String, Object> getAdditionalInformation() {
+  return this.additionalInformation;
+ }
+}
@@ -0,0 +1,62 @@
+package auth.jwt;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// the public half of the key ring as a JSON Web Key Set, for resource
+// servers that validate tokens themselves
+@Profile("jwt")
+@RestController
+class JwkSetRestController {
+
+ static final String PATH = "/.well-known/jwks.json";
+
+ private final KeyRing keyRing;
+
+ @Autowired
+ public JwkSetRestController(KeyRing keyRing) {
+  this.keyRing = keyRing;
+ }
+
+ @GetMapping(PATH)
+ ResponseEntity<Map<String, Object>> keys() {
+  List<Map<String, Object>> keys = new ArrayList<>();
+  this.keyRing.publicKeys().forEach((kid, key) -> keys.add(jwk(kid, key)));
+  return ResponseEntity.ok()
+   .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+   .body(Collections.singletonMap("keys", keys));
+ }
+
+ private static Map<String, Object> jwk(String kid, RSAPublicKey key) {
+  Map<String, Object> jwk = new LinkedHashMap<>();
+  jwk.put("kty", "RSA");
+  jwk.put("kid", kid);
+  jwk.put("use", "sig");
+  jwk.put("alg", "RS256");
+  jwk.put("n", unsigned(key.getModulus()));
+  jwk.put("e", unsigned(key.getPublicExponent()));
+  return jwk;
+ }
+
+ private static String unsigned(BigInteger value) {
+  byte[] bytes = value.toByteArray();
+  int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+  byte[] magnitude = new byte[bytes.length - start];
+  System.arraycopy(bytes, start, magnitude, 0, magnitude.length);
+  return Base64.getUrlEncoder().withoutPadding().encodeToString(magnitude);
+ }
+}
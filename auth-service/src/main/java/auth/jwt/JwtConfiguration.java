@@ -0,0 +1,48 @@
+package auth.jwt;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+
+//@formatter:off
+import org.springframework.security.oauth2
+        .config.annotation.web.configuration.ResourceServerConfigurerAdapter;
+import org.springframework.security.oauth2
+        .provider.token.TokenStore;
+import org.springframework.security.oauth2
+        .provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2
+        .provider.token.store.JwtTokenStore;
+//@formatter:on
+
+@Configuration
+@Profile("jwt")
+@EnableConfigurationProperties(JwtProperties.class)
+public class JwtConfiguration {
+
+ @Bean
+ JwtAccessTokenConverter accessTokenConverter(KeyRing keyRing) {
+  return new KeyRingJwtAccessTokenConverter(keyRing);
+ }
+
+ // tokens carry everything; nothing to store
+ @Bean
+ TokenStore tokenStore(JwtAccessTokenConverter accessTokenConverter) {
+  return new JwtTokenStore(accessTokenConverter);
+ }
+
+ // the key set has to be readable without a token
+ @Bean
+ ResourceServerConfigurerAdapter jwkSetResourceServerConfigurer() {
+  return new ResourceServerConfigurerAdapter() {
+
+   @Override
+   public void configure(HttpSecurity http) throws Exception {
+    http.authorizeRequests().antMatchers(JwkSetRestController.PATH)
+     .permitAll().anyRequest().authenticated();
+   }
+  };
+ }
+}
@@ -0,0 +1,31 @@
+package auth.jwt;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("jwt")
+public class JwtProperties {
+
+ // a new signing key is made this often (ms) ...
+ private long rotationInterval = 24 * 60 * 60 * 1000L;
+
+ // ... and published this long before it is used, so resource servers
+ // have it before the first token signed with it arrives (ms)
+ private long publishAhead = 10 * 60 * 1000L;
+
+ // keys kept for verification at least ...
+ private int retainedKeys = 3;
+
+ // ... and beyond that, for as long as tokens signed with them may still be
+ // valid: the longest access or refresh token validity of any client (ms)
+ private long tokenValidity = 30 * 24 * 60 * 60 * 1000L;
+
+ // how often the key ring is reloaded and checked for rotation (ms)
+ private long refreshInterval = 60_000;
+
+ private int keySize = 2048;
+
+ // encrypts the private keys in the database, when set
+ private String keyPassword;
+}
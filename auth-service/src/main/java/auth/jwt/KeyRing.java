@@ -0,0 +1,212 @@
+package auth.jwt;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// the RSA keys tokens are signed with. the newest key that has been
+// published for long enough signs, older ones remain for verification until
+// every token they signed has expired.
+@Profile("jwt")
+@Component
+public class KeyRing {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final SigningKeyRepository repository;
+
+ private final JwtProperties properties;
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "key-ring");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ private volatile Keys keys = new Keys(Collections.emptyList());
+
+ @Autowired
+ public KeyRing(SigningKeyRepository repository, JwtProperties properties) {
+  this.repository = repository;
+  this.properties = properties;
+ }
+
+ @PostConstruct
+ public void start() {
+  this.refresh();
+  this.scheduler.scheduleWithFixedDelay(this::refresh,
+   this.properties.getRefreshInterval(), this.properties.getRefreshInterval(),
+   TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ Key signingKey() {
+  return this.keys.signing;
+ }
+
+ RSAPublicKey verificationKey(String kid) {
+  Key key = this.keys.byKid.get(kid);
+  return key == null ? null : key.publicKey;
+ }
+
+ Map<String, RSAPublicKey> publicKeys() {
+  Map<String, RSAPublicKey> publicKeys = new LinkedHashMap<>();
+  this.keys.byKid.forEach((kid, key) -> publicKeys.put(kid, key.publicKey));
+  return publicKeys;
+ }
+
+ private void refresh() {
+  try {
+   long now = System.currentTimeMillis();
+   long epoch = now / this.properties.getRotationInterval();
+   List<SigningKey> stored = this.repository.findAllByOrderByEpochDesc();
+   if (stored.isEmpty() || stored.get(0).getEpoch() < epoch) {
+    stored = this.rotate(epoch, now);
+   }
+   this.keys = new Keys(this.trim(stored, now));
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't refresh the signing keys", e);
+  }
+ }
+
+ // every instance gets here at about the same time; the unique epoch lets
+ // exactly one of them add its key, the others load that one
+ private List<SigningKey> rotate(long epoch, long now) throws Exception {
+  SigningKey created = this.generate(epoch, now);
+  try {
+   this.repository.saveAndFlush(created);
+   this.log.info("rotated signing keys, new key " + created.getKid());
+  }
+  catch (DataIntegrityViolationException e) {
+   this.log.debug("signing keys already rotated for epoch " + epoch);
+  }
+  return this.repository.findAllByOrderByEpochDesc();
+ }
+
+ // past the retained count, a key only goes once every token it signed has
+ // expired. it stopped signing when the next key was published, and so did
+ // every key older than it.
+ private List<SigningKey> trim(List<SigningKey> stored, long now) {
+  int keep = Math.max(1, Math.min(stored.size(), this.properties
+   .getRetainedKeys()));
+  while (keep < stored.size()
+   && stored.get(keep - 1).getCreated() + this.properties.getPublishAhead()
+    + this.properties.getTokenValidity() > now) {
+   keep++;
+  }
+  if (keep < stored.size()) {
+   List<String> expired = new ArrayList<>();
+   stored.subList(keep, stored.size()).forEach(k -> expired.add(k.getKid()));
+   this.repository.deleteByKidIn(expired);
+   this.log.info("dropped expired signing keys " + expired);
+  }
+  return stored.subList(0, Math.min(keep, stored.size()));
+ }
+
+ private SigningKey generate(long epoch, long now) throws Exception {
+  KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+  generator.initialize(this.properties.getKeySize());
+  KeyPair pair = generator.generateKeyPair();
+  Base64.Encoder encoder = Base64.getEncoder();
+  String privateKey = encoder.encodeToString(pair.getPrivate().getEncoded());
+  String salt = null;
+  if (StringUtils.hasText(this.properties.getKeyPassword())) {
+   salt = KeyGenerators.string().generateKey();
+   privateKey = Encryptors.text(this.properties.getKeyPassword(), salt)
+    .encrypt(privateKey);
+  }
+  return new SigningKey(UUID.randomUUID().toString(), now, epoch,
+   encoder.encodeToString(pair.getPublic().getEncoded()), privateKey, salt);
+ }
+
+ static class Key {
+
+  final String kid;
+
+  final long created;
+
+  final RSAPublicKey publicKey;
+
+  final RSAPrivateKey privateKey;
+
+  Key(SigningKey stored, String password) throws Exception {
+   KeyFactory factory = KeyFactory.getInstance("RSA");
+   Base64.Decoder decoder = Base64.getDecoder();
+   this.kid = stored.getKid();
+   this.created = stored.getCreated();
+   this.publicKey = (RSAPublicKey) factory.generatePublic(
+    new X509EncodedKeySpec(decoder.decode(stored.getPublicKey())));
+   String privateKey = stored.getPrivateKey();
+   if (stored.getSalt() != null) {
+    Assert.hasText(password, "signing key " + this.kid
+     + " is encrypted, but jwt.key-password is not set");
+    privateKey = Encryptors.text(password, stored.getSalt()).decrypt(
+     privateKey);
+   }
+   this.privateKey = (RSAPrivateKey) factory.generatePrivate(
+    new PKCS8EncodedKeySpec(decoder.decode(privateKey)));
+  }
+ }
+
+ // newest first
+ private class Keys {
+
+  private final Map<String, Key> byKid = new LinkedHashMap<>();
+
+  private final Key signing;
+
+  Keys(List<SigningKey> stored) {
+   long publishedBefore = System.currentTimeMillis()
+    - properties.getPublishAhead();
+   Key signing = null;
+   for (SigningKey signingKey : stored) {
+    try {
+     Key key = new Key(signingKey, properties.getKeyPassword());
+     this.byKid.put(key.kid, key);
+     // passes over keys too new to have reached resource servers; if none
+     // is old enough, the oldest one signs
+     if (signing == null || signing.created > publishedBefore) {
+      signing = key;
+     }
+    }
+    catch (Exception e) {
+     log.warn("skipping unreadable signing key " + signingKey.getKid(), e);
+    }
+   }
+   this.signing = signing;
+  }
+ }
+}
@@ -0,0 +1,101 @@
+package auth.jwt;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// RS256 tokens signed with the key ring's current key and carrying its id in
+// the kid header, so verifiers know which published key to check against
+public class KeyRingJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+ private static final TypeReference<Map<String, Object>> MAP =
+  new TypeReference<Map<String, Object>>() {
+  };
+
+ private final ObjectMapper objectMapper = new ObjectMapper();
+
+ private final KeyRing keyRing;
+
+ public KeyRingJwtAccessTokenConverter(KeyRing keyRing) {
+  this.keyRing = keyRing;
+ }
+
+ @Override
+ protected String encode(OAuth2AccessToken accessToken,
+  OAuth2Authentication authentication) {
+  KeyRing.Key key = this.keyRing.signingKey();
+  if (key == null) {
+   throw new IllegalStateException("no signing key available");
+  }
+  try {
+   Map<String, Object> header = new LinkedHashMap<>();
+   header.put("alg", "RS256");
+   header.put("typ", "JWT");
+   header.put("kid", key.kid);
+   String signed = encode(this.objectMapper.writeValueAsBytes(header)) + '.'
+    + encode(this.objectMapper.writeValueAsBytes(this
+     .getAccessTokenConverter().convertAccessToken(accessToken,
+      authentication)));
+   Signature signature = Signature.getInstance("SHA256withRSA");
+   signature.initSign(key.privateKey);
+   signature.update(signed.getBytes(StandardCharsets.US_ASCII));
+   return signed + '.' + encode(signature.sign());
+  }
+  catch (Exception e) {
+   throw new IllegalStateException("couldn't sign the access token", e);
+  }
+ }
+
+ @Override
+ protected Map<String, Object> decode(String token) {
+  String[] parts = token.split("\\.");
+  if (parts.length != 3) {
+   throw new InvalidTokenException("not a signed JWT");
+  }
+  try {
+   Map<String, Object> header = this.objectMapper.readValue(
+    decode(parts[0].getBytes(StandardCharsets.US_ASCII)), MAP);
+   RSAPublicKey key = this.keyRing.verificationKey((String) header.get("kid"));
+   if (key == null) {
+    throw new InvalidTokenException("unknown signing key");
+   }
+   Signature signature = Signature.getInstance("SHA256withRSA");
+   signature.initVerify(key);
+   signature.update((parts[0] + '.' + parts[1])
+    .getBytes(StandardCharsets.US_ASCII));
+   if (!signature.verify(decode(parts[2].getBytes(StandardCharsets.US_ASCII)))) {
+    throw new InvalidTokenException("invalid token signature");
+   }
+   Map<String, Object> claims = this.objectMapper.readValue(
+    decode(parts[1].getBytes(StandardCharsets.US_ASCII)), MAP);
+   Object exp = claims.get(EXP);
+   if (exp instanceof Integer) {
+    claims.put(EXP, ((Integer) exp).longValue());
+   }
+   return claims;
+  }
+  catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+   throw new InvalidTokenException("cannot decode the access token", e);
+  }
+ }
+
+ private static String encode(byte[] bytes) {
+  return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+ }
+
+ private static byte[] decode(byte[] base64) {
+  return Base64.getUrlDecoder().decode(base64);
+ }
+}
@@ -0,0 +1,42 @@
+package auth.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+
+// one RSA key pair of the key ring. kept in the database so that every
+// auth-service instance signs and publishes the same keys. the private key
+// is only encrypted when jwt.key-password is set; otherwise the database
+// holds it in the clear and has to be guarded accordingly.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class SigningKey {
+
+ @Id
+ private String kid;
+
+ private long created;
+
+ // the rotation interval the key was made for; unique, so that however many
+ // instances rotate at once, only one key per interval gets in
+ @Column(unique = true)
+ private long epoch;
+
+ // X.509, base64
+ @Lob
+ private String publicKey;
+
+ // PKCS#8, base64, encrypted if salt is set
+ @Lob
+ private String privateKey;
+
+ // hex, for jwt.key-password
+ private String salt;
+}
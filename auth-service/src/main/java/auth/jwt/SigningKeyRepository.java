@@ -0,0 +1,21 @@
+package auth.jwt;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+
+ List<SigningKey> findAllByOrderByEpochDesc();
+
+ // a plain delete statement, so instances trimming the same keys at once
+ // don't trip over each other
+ @Modifying
+ @Transactional
+ @Query("delete from SigningKey k where k.kid in ?1")
+ int deleteByKidIn(Collection<String> kids);
+}
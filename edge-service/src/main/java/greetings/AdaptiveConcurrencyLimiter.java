@@ -0,0 +1,126 @@
+package greetings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// a gradient concurrency limit for one route. the limit grows while the
+// latency of recent requests stays close to the long-term latency and
+// shrinks once requests start to queue downstream (or fail). samples are
+// folded into a window with atomics; whichever request closes the window
+// recomputes the limit, so nothing here ever takes a lock.
+final class AdaptiveConcurrencyLimiter {
+
+ private final ConcurrencyLimitProperties properties;
+
+ private final long windowNanos;
+
+ private final AtomicInteger inFlight = new AtomicInteger();
+
+ private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+ private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+
+ private final AtomicInteger windowSamples = new AtomicInteger();
+
+ private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+ private final AtomicBoolean windowDropped = new AtomicBoolean();
+
+ private volatile double estimatedLimit;
+
+ private volatile int limit;
+
+ private volatile double longRtt;
+
+ AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+  this.properties = properties;
+  this.windowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getWindow());
+  this.estimatedLimit = properties.getInitialLimit();
+  this.limit = properties.getInitialLimit();
+ }
+
+ boolean tryAcquire() {
+  for (;;) {
+   int current = this.inFlight.get();
+   if (current >= this.limit) {
+    return false;
+   }
+   if (this.inFlight.compareAndSet(current, current + 1)) {
+    this.windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+    return true;
+   }
+  }
+ }
+
+ void release(long rttNanos, boolean dropped) {
+  this.inFlight.decrementAndGet();
+  this.windowMinRtt.accumulateAndGet(rttNanos, Math::min);
+  this.windowSamples.incrementAndGet();
+  if (dropped) {
+   this.windowDropped.set(true);
+  }
+  long now = System.nanoTime();
+  long start = this.windowStart.get();
+  if (now - start >= this.windowNanos
+   && this.windowStart.compareAndSet(start, now)) {
+   this.update();
+  }
+ }
+
+ int getLimit() {
+  return this.limit;
+ }
+
+ int getInFlight() {
+  return this.inFlight.get();
+ }
+
+ Map<String, Object> summary() {
+  Map<String, Object> summary = new LinkedHashMap<>();
+  summary.put("limit", this.limit);
+  summary.put("inFlight", this.inFlight.get());
+  summary.put("longRttMillis",
+   this.longRtt / TimeUnit.MILLISECONDS.toNanos(1));
+  return summary;
+ }
+
+ private void update() {
+  long rtt = this.windowMinRtt.getAndSet(Long.MAX_VALUE);
+  int samples = this.windowSamples.getAndSet(0);
+  int maxInFlight = this.windowMaxInFlight.getAndSet(0);
+  boolean dropped = this.windowDropped.getAndSet(false);
+  if (samples == 0) {
+   return;
+  }
+
+  double estimate = this.estimatedLimit;
+  if (dropped) {
+   estimate = estimate * this.properties.getBackoffRatio();
+  }
+  else {
+   double longRtt = this.longRtt == 0 ? rtt : this.longRtt
+    + (rtt - this.longRtt) / this.properties.getLongWindows();
+   this.longRtt = longRtt;
+
+   // don't grow a limit that traffic isn't even reaching
+   if (maxInFlight * 2 < estimate) {
+    return;
+   }
+   double gradient = Math.max(0.5D, Math.min(1.0D,
+    this.properties.getRttTolerance() * longRtt / rtt));
+   double queueSize = Math.sqrt(estimate);
+   double next = estimate * gradient + queueSize;
+   estimate = estimate * (1 - this.properties.getSmoothing()) + next
+    * this.properties.getSmoothing();
+  }
+
+  estimate = Math.max(this.properties.getMinLimit(),
+   Math.min(this.properties.getMaxLimit(), estimate));
+  this.estimatedLimit = estimate;
+  this.limit = (int) estimate;
+ }
+}
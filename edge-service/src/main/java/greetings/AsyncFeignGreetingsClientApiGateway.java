@@ -0,0 +1,81 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+@Profile("feign")
+@RestController
+@RequestMapping("/api/async")
+class AsyncFeignGreetingsClientApiGateway {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final GreetingsClient greetingsClient;
+
+ private final ExecutorService executor;
+
+ private final RequestContextPropagation propagation;
+
+ private final long timeout;
+
+ @Autowired
+ AsyncFeignGreetingsClientApiGateway(GreetingsClient greetingsClient,
+  @Qualifier("feignGatewayExecutor") ExecutorService executor,
+  RequestContextPropagation propagation, AsyncGatewayProperties properties) {
+  this.greetingsClient = greetingsClient;
+  this.executor = executor;
+  this.propagation = propagation;
+  this.timeout = properties.getTimeout();
+ }
+
+ // Feign itself blocks, so the call moves to a bounded pool and the servlet
+ // thread goes back to Tomcat. a full pool is answered with 503
+ @GetMapping("/feign/{name}")
+ DeferredResult<ResponseEntity<Map<String, String>>> feign(
+  @PathVariable String name) {
+  DeferredResult<ResponseEntity<Map<String, String>>> result = new DeferredResult<>(
+   this.timeout, ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+
+  Future<?> future;
+  try {
+   // the token to relay is resolved now; by the time the worker runs the
+   // request scope may already be gone
+   future = this.executor.submit(this.propagation.wrap(() -> {
+    try {
+     return result.setResult(ResponseEntity.ok(this.greetingsClient
+      .greet(name)));
+    }
+    catch (RuntimeException ex) {
+     this.log.debug("async call to greetings-service failed", ex);
+     return result.setResult(ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+      .build());
+    }
+   }));
+  }
+  catch (RejectedExecutionException ex) {
+   result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+    .build());
+   return result;
+  }
+
+  // interrupts the worker if it is still blocked when we stop waiting
+  result.onCompletion(() -> {
+   if (!future.isDone()) {
+    future.cancel(true);
+   }
+  });
+  return result;
+ }
+}
@@ -0,0 +1,70 @@
+package greetings;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.web.client.AsyncRestTemplate;
+import relay.HttpClientProperties;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties(AsyncGatewayProperties.class)
+class AsyncGatewayConfiguration {
+
+ @Configuration
+ @Profile({ "default", "insecure" })
+ static class AsyncRestTemplateConfiguration {
+
+  // NIO client, so a slow downstream holds a socket but not a thread. pool
+  // limits and timeouts are the ones the blocking client uses
+  @Bean(destroyMethod = "close")
+  CloseableHttpAsyncClient asyncHttpClient(HttpClientProperties properties) {
+   RequestConfig requestConfig = RequestConfig.custom()
+    .setConnectTimeout(properties.getConnectTimeout())
+    .setSocketTimeout(properties.getReadTimeout())
+    .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+    .build();
+   return HttpAsyncClients.custom()
+    .setMaxConnTotal(properties.getMaxTotal())
+    .setMaxConnPerRoute(properties.getMaxPerRoute())
+    .setDefaultRequestConfig(requestConfig)
+    .build();
+  }
+
+  @Bean
+  @LoadBalanced
+  AsyncRestTemplate asyncRestTemplate(CloseableHttpAsyncClient asyncHttpClient) {
+   return new AsyncRestTemplate(new HttpComponentsAsyncClientHttpRequestFactory(
+    asyncHttpClient));
+  }
+ }
+
+ @Configuration
+ @Profile("feign")
+ static class AsyncFeignConfiguration {
+
+  @Bean(destroyMethod = "shutdownNow")
+  ExecutorService feignGatewayExecutor(AsyncGatewayProperties properties) {
+   AtomicInteger threads = new AtomicInteger();
+   return new ThreadPoolExecutor(properties.getFeignThreads(),
+    properties.getFeignThreads(), 60, TimeUnit.SECONDS,
+    new ArrayBlockingQueue<>(properties.getFeignQueueCapacity()), runnable -> {
+     Thread thread = new Thread(runnable, "async-feign-"
+      + threads.incrementAndGet());
+     thread.setDaemon(true);
+     return thread;
+    });
+  }
+ }
+}
@@ -0,0 +1,18 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("async-gateway")
+class AsyncGatewayProperties {
+
+ // how long an async call may take before we answer 504 and cancel it (ms)
+ private long timeout = 5_000;
+
+ // Feign blocks, so async Feign calls run on this many threads ...
+ private int feignThreads = 16;
+
+ // ... with at most this many waiting before we answer 503
+ private int feignQueueCapacity = 100;
+}
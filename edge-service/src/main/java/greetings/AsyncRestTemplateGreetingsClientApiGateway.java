@@ -0,0 +1,75 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+
+@Profile({ "default", "insecure" })
+@RestController
+@RequestMapping("/api/async")
+class AsyncRestTemplateGreetingsClientApiGateway {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final AsyncRestTemplate asyncRestTemplate;
+
+ private final long timeout;
+
+ @Autowired
+ AsyncRestTemplateGreetingsClientApiGateway(
+  @LoadBalanced AsyncRestTemplate asyncRestTemplate,
+  AsyncGatewayProperties properties) {
+  this.asyncRestTemplate = asyncRestTemplate;
+  this.timeout = properties.getTimeout();
+ }
+
+ // the servlet thread is released as soon as the request is sent
+ @GetMapping("/resttemplate/{name}")
+ DeferredResult<ResponseEntity<Map<String, String>>> restTemplate(
+  @PathVariable String name) {
+
+  //@formatter:off
+  ParameterizedTypeReference<Map<String, String>> type =
+      new ParameterizedTypeReference<Map<String, String>>() {};
+  //@formatter:on
+
+  DeferredResult<ResponseEntity<Map<String, String>>> result = new DeferredResult<>(
+   this.timeout, ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+  ListenableFuture<ResponseEntity<Map<String, String>>> future = this.asyncRestTemplate
+   .exchange("http://greetings-service/greet/{name}", HttpMethod.GET, null,
+    type, name);
+  future.addCallback(
+   response -> result.setResult(ResponseEntity.ok(response.getBody())),
+   ex -> result.setResult(failure(ex)));
+
+  // on timeout, or if the client went away, stop waiting on downstream
+  result.onCompletion(() -> {
+   if (!future.isDone()) {
+    future.cancel(true);
+   }
+  });
+  return result;
+ }
+
+ private ResponseEntity<Map<String, String>> failure(Throwable ex) {
+  if (ex instanceof HttpStatusCodeException) {
+   return ResponseEntity.status(
+    HttpStatusCodeException.class.cast(ex).getStatusCode()).build();
+  }
+  this.log.debug("async call to greetings-service failed", ex);
+  return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+ }
+}
@@ -0,0 +1,29 @@
+package greetings;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties(BatchGatewayProperties.class)
+class BatchGatewayConfiguration {
+
+ @Bean(destroyMethod = "shutdownNow")
+ ExecutorService batchGatewayExecutor(BatchGatewayProperties properties) {
+  AtomicInteger threads = new AtomicInteger();
+  return new ThreadPoolExecutor(properties.getThreads(),
+   properties.getThreads(), 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(
+    properties.getQueueCapacity()), runnable -> {
+    Thread thread = new Thread(runnable, "batch-gateway-"
+     + threads.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+   });
+ }
+}
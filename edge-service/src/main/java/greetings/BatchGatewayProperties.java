@@ -0,0 +1,23 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("batch-gateway")
+class BatchGatewayProperties {
+
+ // larger batches are refused with 413
+ private int maxNames = 100;
+
+ // downstream calls in flight at once for a single batch
+ private int concurrency = 8;
+
+ // the whole batch answers within this, finished or not (ms)
+ private long deadline = 5_000;
+
+ // shared by all batches
+ private int threads = 32;
+
+ private int queueCapacity = 256;
+}
@@ -0,0 +1,166 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+// many names in one round trip. every name is still one downstream call, but
+// they run a few at a time in parallel and the batch as a whole answers by
+// its deadline, with per-name results in request order.
+@RestController
+@RequestMapping("/api")
+class BatchGreetingsClientApiGateway {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final Function<String, Map<String, String>> greeter;
+
+ private final ExecutorService executor;
+
+ private final BatchGatewayProperties properties;
+
+ private final RequestContextPropagation propagation;
+
+ @Autowired
+ BatchGreetingsClientApiGateway(@LoadBalanced RestTemplate restTemplate,
+  GreetingsClient greetingsClient,
+  @Qualifier("batchGatewayExecutor") ExecutorService executor,
+  BatchGatewayProperties properties, RequestContextPropagation propagation,
+  Environment environment) {
+  this.greeter = environment.acceptsProfiles("feign") ? greetingsClient::greet
+   : name -> greet(restTemplate, name);
+  this.executor = executor;
+  this.properties = properties;
+  this.propagation = propagation;
+ }
+
+ @PostMapping("/greetings")
+ ResponseEntity<List<Map<String, Object>>> greetings(
+  @RequestBody List<String> names) throws InterruptedException {
+  if (names.size() > this.properties.getMaxNames()) {
+   return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+  }
+
+  long deadline = System.nanoTime()
+   + TimeUnit.MILLISECONDS.toNanos(this.properties.getDeadline());
+  AtomicReferenceArray<Map<String, Object>> results = new AtomicReferenceArray<>(
+   names.size());
+  CompletionService<Integer> completions = new ExecutorCompletionService<>(
+   this.executor);
+  List<Future<Integer>> futures = new ArrayList<>(names.size());
+
+  // keep at most `concurrency` calls in flight, starting the next name as
+  // soon as one finishes
+  int concurrency = this.properties.getConcurrency();
+  int next = 0, inFlight = 0;
+  try {
+   while (next < names.size() && inFlight < concurrency) {
+    inFlight += this.submit(completions, futures, names, next++, results);
+   }
+   while (inFlight > 0) {
+    long remaining = deadline - System.nanoTime();
+    if (remaining <= 0
+     || completions.poll(remaining, TimeUnit.NANOSECONDS) == null) {
+     break;
+    }
+    inFlight--;
+    // a rejected name is answered 503 at once, so go on to the next one
+    // rather than leave names unsent for the deadline to claim
+    while (next < names.size() && inFlight < concurrency) {
+     inFlight += this.submit(completions, futures, names, next++, results);
+    }
+   }
+  }
+  finally {
+   futures.forEach(f -> f.cancel(true));
+  }
+
+  List<Map<String, Object>> response = new ArrayList<>(names.size());
+  for (int i = 0; i < names.size(); i++) {
+   // anything still unanswered is settled now, racing a late completion
+   results.compareAndSet(i, null, failure(names.get(i),
+    HttpStatus.GATEWAY_TIMEOUT, "deadline exceeded"));
+   response.add(results.get(i));
+  }
+  return ResponseEntity.ok(response);
+ }
+
+ private int submit(CompletionService<Integer> completions,
+  List<Future<Integer>> futures, List<String> names, int index,
+  AtomicReferenceArray<Map<String, Object>> results) {
+  String name = names.get(index);
+  try {
+   futures.add(completions.submit(this.propagation.wrap(() -> {
+    results.compareAndSet(index, null, this.call(name));
+    return index;
+   })));
+   return 1;
+  }
+  catch (RejectedExecutionException e) {
+   results.compareAndSet(index, null, failure(name,
+    HttpStatus.SERVICE_UNAVAILABLE, "too busy"));
+   return 0;
+  }
+ }
+
+ private Map<String, Object> call(String name) {
+  try {
+   Map<String, Object> result = new LinkedHashMap<>();
+   result.put("name", name);
+   result.put("status", HttpStatus.OK.value());
+   result.putAll(this.greeter.apply(name));
+   return result;
+  }
+  catch (HttpStatusCodeException e) {
+   return failure(name, e.getStatusCode(), e.getStatusText());
+  }
+  catch (RuntimeException e) {
+   this.log.debug("batch call to greetings-service failed for " + name, e);
+   return failure(name, HttpStatus.BAD_GATEWAY, e.getMessage());
+  }
+ }
+
+ private static Map<String, Object> failure(String name, HttpStatus status,
+  String error) {
+  Map<String, Object> result = new LinkedHashMap<>();
+  result.put("name", name);
+  result.put("status", status.value());
+  result.put("error", error);
+  return result;
+ }
+
+ private static Map<String, String> greet(RestTemplate restTemplate,
+  String name) {
+
+  //@formatter:off
+  ParameterizedTypeReference<Map<String, String>> type =
+      new ParameterizedTypeReference<Map<String, String>>() {};
+  //@formatter:on
+
+  return restTemplate.exchange("http://greetings-service/greet/{name}",
+   HttpMethod.GET, null, type, name).getBody();
+ }
+}
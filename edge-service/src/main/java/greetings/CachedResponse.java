@@ -0,0 +1,47 @@
+package greetings;
+
+import com.netflix.util.Pair;
+
+import java.util.List;
+
+final class CachedResponse {
+
+ private final int status;
+
+ private final List<Pair<String, String>> headers;
+
+ private final byte[] body;
+
+ private final boolean gzipped;
+
+ private final long expiresAt;
+
+ CachedResponse(int status, List<Pair<String, String>> headers, byte[] body,
+  boolean gzipped, long expiresAt) {
+  this.status = status;
+  this.headers = headers;
+  this.body = body;
+  this.gzipped = gzipped;
+  this.expiresAt = expiresAt;
+ }
+
+ int getStatus() {
+  return this.status;
+ }
+
+ List<Pair<String, String>> getHeaders() {
+  return this.headers;
+ }
+
+ byte[] getBody() {
+  return this.body;
+ }
+
+ boolean isGzipped() {
+  return this.gzipped;
+ }
+
+ boolean isExpired(long now) {
+  return now >= this.expiresAt;
+ }
+}
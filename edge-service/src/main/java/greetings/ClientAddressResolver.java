@@ -0,0 +1,56 @@
+package greetings;
+
+import com.google.common.net.InetAddresses;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// the address a request really came from. x-forwarded-for is only believed
+// when the peer is one of our own proxies, and then only up to the first
+// hop we don't trust: everything left of that was written by the client.
+class ClientAddressResolver {
+
+ private final List<IpAddressMatcher> trustedProxies;
+
+ ClientAddressResolver(List<String> trustedProxies) {
+  this.trustedProxies = trustedProxies.stream().filter(StringUtils::hasText)
+   .map(IpAddressMatcher::new).collect(Collectors.toList());
+ }
+
+ String resolve(HttpServletRequest request) {
+  String address = request.getRemoteAddr();
+  String forwardedFor = request.getHeader("x-forwarded-for");
+  if (!StringUtils.hasText(forwardedFor) || !this.isTrusted(address)) {
+   return address;
+  }
+  String[] hops = StringUtils.commaDelimitedListToStringArray(forwardedFor);
+  for (int i = hops.length - 1; i >= 0; i--) {
+   String hop = hops[i].trim();
+   if (!StringUtils.hasText(hop)) {
+    break;
+   }
+   address = hop;
+   if (!this.isTrusted(hop)) {
+    break;
+   }
+  }
+  return address;
+ }
+
+ // literals only: IpAddressMatcher would resolve a host name, and the
+ // header is attacker controlled
+ private boolean isTrusted(String address) {
+  if (!InetAddresses.isInetAddress(address)) {
+   return false;
+  }
+  for (IpAddressMatcher proxy : this.trustedProxies) {
+   if (proxy.matches(address)) {
+    return true;
+   }
+  }
+  return false;
+ }
+}
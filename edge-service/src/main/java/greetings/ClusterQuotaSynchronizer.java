@@ -0,0 +1,79 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// batches local demand into the QuotaStore on its own thread and resizes
+// the local buckets from the answer; requests never wait on any of this
+class ClusterQuotaSynchronizer {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final KeyedRateLimiter rateLimiter;
+
+ private final QuotaStore quotaStore;
+
+ private final DiscoveryClient discoveryClient;
+
+ private final DiscoveryCatalog discoveryCatalog;
+
+ private final String serviceId;
+
+ private final long syncInterval;
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "cluster-quota");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ ClusterQuotaSynchronizer(KeyedRateLimiter rateLimiter, QuotaStore quotaStore,
+  DiscoveryClient discoveryClient, DiscoveryCatalog discoveryCatalog,
+  String serviceId, long syncInterval) {
+  this.rateLimiter = rateLimiter;
+  this.quotaStore = quotaStore;
+  this.discoveryClient = discoveryClient;
+  this.discoveryCatalog = discoveryCatalog;
+  this.serviceId = serviceId;
+  this.syncInterval = syncInterval;
+ }
+
+ @PostConstruct
+ public void start() {
+  this.scheduler.scheduleWithFixedDelay(this::synchronize, this.syncInterval,
+   this.syncInterval, TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ private void synchronize() {
+  try {
+   ServiceInstance self = this.discoveryClient.getLocalServiceInstance();
+   if (self == null) {
+    return;
+   }
+   Map<String, Long> localDemand = this.rateLimiter.drainDemand();
+   Map<String, Long> clusterDemand = this.quotaStore.exchange(
+    DiscoverySnapshot.address(self), localDemand);
+   int instances = this.discoveryCatalog.getSnapshot()
+    .getInstances(this.serviceId).size();
+   this.rateLimiter.rebalance(localDemand, clusterDemand, instances);
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't synchronize cluster quotas", e);
+  }
+ }
+}
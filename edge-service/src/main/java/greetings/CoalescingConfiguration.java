@@ -0,0 +1,31 @@
+package greetings;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.security.Principal;
+
+@Profile("coalescing")
+@Configuration
+@EnableConfigurationProperties(CoalescingProperties.class)
+class CoalescingConfiguration {
+
+ @Bean
+ RequestCoalescer requestCoalescer(CoalescingProperties properties) {
+  return new RequestCoalescer(properties.getTimeout());
+ }
+
+ @Bean
+ @ConditionalOnMissingBean
+ CoalescingKeyFunction coalescingKeyFunction() {
+  return (routeId, request) -> {
+   Principal principal = request.getUserPrincipal();
+   return routeId + ' ' + request.getRequestURI() + '?'
+    + request.getQueryString() + '|'
+    + (principal == null ? "" : principal.getName());
+  };
+ }
+}
@@ -0,0 +1,11 @@
+package greetings;
+
+import javax.servlet.http.HttpServletRequest;
+
+// decides which proxied requests are "the same". declare a bean of this type
+// to key on more than the route, path and query (a header, the principal..)
+@FunctionalInterface
+interface CoalescingKeyFunction {
+
+ String keyFor(String routeId, HttpServletRequest request);
+}
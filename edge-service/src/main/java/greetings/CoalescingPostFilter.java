@@ -0,0 +1,115 @@
+package greetings;
+
+import com.netflix.util.Pair;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// publishes the leading request's response to the requests waiting on it,
+// minus cookies and hop-by-hop headers, which were the leader's alone. it
+// runs after errors too, so waiters are always released.
+@Profile("coalescing")
+@Component
+class CoalescingPostFilter extends ZuulFilter {
+
+ private final RequestCoalescer coalescer;
+
+ private final CoalescingProperties properties;
+
+ @Autowired
+ public CoalescingPostFilter(RequestCoalescer coalescer,
+  CoalescingProperties properties) {
+  this.coalescer = coalescer;
+  this.properties = properties;
+ }
+
+ @Override
+ public String filterType() {
+  return "post";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 901;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  return RequestContext.getCurrentContext().containsKey(
+   CoalescingPreFilter.KEY);
+ }
+
+ @Override
+ @SuppressWarnings("unchecked")
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  String key = (String) context.remove(CoalescingPreFilter.KEY);
+  CompletableFuture<Object> mine = (CompletableFuture<Object>) context
+   .remove(CoalescingPreFilter.FUTURE);
+  if (context.getThrowable() != null
+   || context.getResponseStatusCode() != 200) {
+   this.coalescer.abandon(key, mine);
+   return null;
+  }
+  List<Pair<String, String>> headers = context.getZuulResponseHeaders();
+  // the key function is opaque, so a response that varies on anything may
+  // not suit the waiters; they go downstream themselves instead
+  if (SharedResponseHeaders.variesBeyond(headers,
+   Collections.<String> emptyList())) {
+   this.coalescer.abandon(key, mine);
+   return null;
+  }
+  try {
+   byte[] body = this.buffer(context);
+   // too big to hold for the waiters; they go downstream themselves
+   if (body == null) {
+    this.coalescer.abandon(key, mine);
+    return null;
+   }
+   this.coalescer.complete(key, mine, new CachedResponse(
+    context.getResponseStatusCode(), SharedResponseHeaders.of(headers), body,
+    context.getResponseGZipped(), Long.MAX_VALUE));
+  }
+  catch (IOException e) {
+   this.coalescer.abandon(key, mine);
+   context.setThrowable(e);
+  }
+  return null;
+ }
+
+ // reads at most maxBodyBytes + 1 bytes; anything bigger is stitched back
+ // together and streamed to the leader as it would have been
+ private byte[] buffer(RequestContext context) throws IOException {
+  if (context.getResponseBody() != null) {
+   return context.getResponseBody().getBytes(StandardCharsets.UTF_8);
+  }
+  InputStream stream = context.getResponseDataStream();
+  if (stream == null) {
+   return new byte[0];
+  }
+  long limit = this.properties.getMaxBodyBytes() + 1;
+  ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  StreamUtils.copyRange(stream, buffer, 0, limit - 1);
+  byte[] bytes = buffer.toByteArray();
+  if (bytes.length >= limit) {
+   context.setResponseDataStream(new SequenceInputStream(
+    new ByteArrayInputStream(bytes), stream));
+   return null;
+  }
+  context.setResponseDataStream(new ByteArrayInputStream(bytes));
+  return bytes;
+ }
+}
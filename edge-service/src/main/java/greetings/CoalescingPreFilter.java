@@ -0,0 +1,98 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// the first GET for a key is proxied as usual and CoalescingPostFilter
+// publishes its response; identical requests arriving meanwhile wait for
+// that response instead of going downstream themselves. if the leader
+// fails or takes too long they fall back to proxying their own request.
+@Profile("coalescing")
+@Component
+class CoalescingPreFilter extends ZuulFilter {
+
+ static final String KEY = "coalescingKey";
+
+ static final String FUTURE = "coalescingFuture";
+
+ private final RequestCoalescer coalescer;
+
+ private final CoalescingKeyFunction keyFunction;
+
+ private final CoalescingProperties properties;
+
+ @Autowired
+ public CoalescingPreFilter(RequestCoalescer coalescer,
+  CoalescingKeyFunction keyFunction, CoalescingProperties properties) {
+  this.coalescer = coalescer;
+  this.keyFunction = keyFunction;
+  this.properties = properties;
+ }
+
+ @Override
+ public String filterType() {
+  return "pre";
+ }
+
+ // after ResponseCachePreFilter: a cache hit doesn't need coalescing
+ @Override
+ public int filterOrder() {
+  return 8;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.sendZuulResponse()
+   && HttpMethod.GET.matches(context.getRequest().getMethod())
+   && this.properties.getRoutes().contains(context.get("proxy"));
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  String key = this.keyFunction.keyFor((String) context.get("proxy"),
+   context.getRequest());
+  CompletableFuture<Object> mine = new CompletableFuture<>();
+  CompletableFuture<Object> leader = this.coalescer.join(key, mine);
+  if (leader == null) {
+   context.set(KEY, key);
+   context.set(FUTURE, mine);
+   return null;
+  }
+  CachedResponse response = this.await(leader);
+  if (response != null) {
+   context.setSendZuulResponse(false);
+   context.setResponseStatusCode(response.getStatus());
+   response.getHeaders().forEach(
+    h -> context.addZuulResponseHeader(h.first(), h.second()));
+   context.setResponseGZipped(response.isGzipped());
+   context.setResponseDataStream(new ByteArrayInputStream(response.getBody()));
+  }
+  return null;
+ }
+
+ private CachedResponse await(CompletableFuture<Object> leader) {
+  try {
+   return (CachedResponse) leader.get(this.coalescer.getTimeout(),
+    TimeUnit.MILLISECONDS);
+  }
+  catch (ExecutionException | TimeoutException e) {
+   return null;
+  }
+  catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   return null;
+  }
+ }
+}
@@ -0,0 +1,21 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("coalescing")
+class CoalescingProperties {
+
+ // how long a follower waits for the leading call before making its own
+ private long timeout = 5000;
+
+ // larger responses aren't held for followers; they go downstream instead
+ private long maxBodyBytes = 1024 * 1024;
+
+ // Zuul route ids whose GETs are coalesced
+ private List<String> routes = new ArrayList<>();
+}
@@ -0,0 +1,26 @@
+package greetings;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Profile("adaptive")
+@Component
+class ConcurrencyLimitEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+ private final ConcurrencyLimiters limiters;
+
+ @Autowired
+ public ConcurrencyLimitEndpoint(ConcurrencyLimiters limiters) {
+  super("concurrencylimits");
+  this.limiters = limiters;
+ }
+
+ @Override
+ public Map<String, Object> invoke() {
+  return this.limiters.summary();
+ }
+}
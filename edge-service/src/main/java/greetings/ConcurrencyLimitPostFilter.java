@@ -0,0 +1,43 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// hands the slot taken by ConcurrencyLimitPreFilter back, along with the
+// latency it observed. post filters also run after routing errors, so a
+// slot can't leak.
+@Profile("adaptive")
+@Component
+class ConcurrencyLimitPostFilter extends ZuulFilter {
+
+ @Override
+ public String filterType() {
+  return "post";
+ }
+
+ @Override
+ public int filterOrder() {
+  return -1;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  return RequestContext.getCurrentContext().containsKey(
+   ConcurrencyLimitPreFilter.LIMITER_KEY);
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  AdaptiveConcurrencyLimiter limiter = (AdaptiveConcurrencyLimiter) context
+   .remove(ConcurrencyLimitPreFilter.LIMITER_KEY);
+  long start = (Long) context.get(ConcurrencyLimitPreFilter.START_KEY);
+  int status = context.getResponseStatusCode();
+  boolean dropped = context.getThrowable() != null || status == 429
+   || status == 503 || status == 504;
+  limiter.release(System.nanoTime() - start, dropped);
+  return null;
+ }
+}
@@ -0,0 +1,64 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+// runs after PreDecorationFilter has put the route id into the context,
+// and after the response cache and coalescing pre filters: cache hits and
+// coalesced followers never go downstream, so they must neither take a
+// slot nor feed their near-zero latency into the limit. requests beyond the
+// route's current limit get an immediate 503 instead of parking a Tomcat
+// thread behind a slow downstream.
+@Profile("adaptive")
+@Component
+class ConcurrencyLimitPreFilter extends ZuulFilter {
+
+ static final String LIMITER_KEY = "concurrencyLimiter";
+
+ static final String START_KEY = "concurrencyLimitStart";
+
+ private final Rejection serviceUnavailable = new Rejection(
+  HttpStatus.SERVICE_UNAVAILABLE);
+
+ private final ConcurrencyLimiters limiters;
+
+ @Autowired
+ public ConcurrencyLimitPreFilter(ConcurrencyLimiters limiters) {
+  this.limiters = limiters;
+ }
+
+ @Override
+ public String filterType() {
+  return "pre";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 9;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.sendZuulResponse() && context.get("proxy") != null;
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  AdaptiveConcurrencyLimiter limiter = this.limiters.forRoute((String) context
+   .get("proxy"));
+  if (limiter.tryAcquire()) {
+   context.set(LIMITER_KEY, limiter);
+   context.set(START_KEY, System.nanoTime());
+  }
+  else {
+   this.serviceUnavailable.reject(context, 0);
+  }
+  return null;
+ }
+}
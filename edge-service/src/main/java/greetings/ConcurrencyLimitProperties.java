@@ -0,0 +1,31 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("concurrency-limit")
+class ConcurrencyLimitProperties {
+
+ private int initialLimit = 20;
+
+ private int minLimit = 4;
+
+ private int maxLimit = 500;
+
+ // how much of each new estimate is blended into the current limit
+ private double smoothing = 0.2;
+
+ // how far the latency of a window may exceed the long-term latency before
+ // the limit starts to shrink
+ private double rttTolerance = 1.5;
+
+ // length of a sampling window, in milliseconds
+ private long window = 100;
+
+ // number of windows averaged into the long-term latency
+ private int longWindows = 600;
+
+ // multiplier applied to the limit after a window with failed requests
+ private double backoffRatio = 0.9;
+}
@@ -0,0 +1,39 @@
+package greetings;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Profile("adaptive")
+@Component
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+class ConcurrencyLimiters {
+
+ private final Map<String, AdaptiveConcurrencyLimiter> limiters =
+  new ConcurrentHashMap<>();
+
+ private final ConcurrencyLimitProperties properties;
+
+ @Autowired
+ public ConcurrencyLimiters(ConcurrencyLimitProperties properties) {
+  this.properties = properties;
+ }
+
+ AdaptiveConcurrencyLimiter forRoute(String routeId) {
+  AdaptiveConcurrencyLimiter limiter = this.limiters.get(routeId);
+  return limiter != null ? limiter : this.limiters.computeIfAbsent(routeId,
+   r -> new AdaptiveConcurrencyLimiter(this.properties));
+ }
+
+ Map<String, Object> summary() {
+  Map<String, Object> summary = new LinkedHashMap<>();
+  this.limiters.forEach((routeId, limiter) -> summary.put(routeId,
+   limiter.summary()));
+  return summary;
+ }
+}
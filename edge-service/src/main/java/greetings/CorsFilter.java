@@ -1,16 +1,18 @@
 package greetings;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
 import org.springframework.context.annotation.Profile;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -20,27 +22,45 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Set;
 
 @Profile("cors")
 @Component
+@EnableConfigurationProperties(CorsProperties.class)
 @Order(Ordered.HIGHEST_PRECEDENCE + 10)
 class CorsFilter implements Filter {
 
  private final Log log = LogFactory.getLog(getClass());
 
- private final Map<String, List<ServiceInstance>> catalog = new ConcurrentHashMap<>();
+ private final long originCacheSize;
 
- private final DiscoveryClient discoveryClient;
+ private final Set<String> allowedMethods;
+
+ private final String allowedMethodsHeader;
+
+ private final String allowedHeadersHeader;
+
+ private final boolean allowCredentials;
+
+ private final String maxAgeHeader;
+
+ private volatile OriginIndex originIndex;
 
  // <1>
  @Autowired
- public CorsFilter(DiscoveryClient discoveryClient) {
-  this.discoveryClient = discoveryClient;
-  this.refreshCatalog();
+ public CorsFilter(DiscoveryCatalog discoveryCatalog,
+  CorsProperties properties) {
+  this.originCacheSize = properties.getOriginCacheSize();
+  this.allowedMethods = new HashSet<>(properties.getAllowedMethods());
+  this.allowedMethodsHeader = join(properties.getAllowedMethods());
+  this.allowedHeadersHeader = properties.getAllowedHeaders().contains("*")
+   ? null : join(properties.getAllowedHeaders());
+  this.allowCredentials = properties.isAllowCredentials();
+  this.maxAgeHeader = Long.toString(properties.getMaxAge());
+  this.refreshCatalog(discoveryCatalog.getSnapshot());
  }
 
  // <2>
@@ -52,50 +72,80 @@ class CorsFilter implements Filter {
   String originHeaderValue = originFor(request);
   boolean clientAllowed = isClientAllowed(originHeaderValue);
 
+  if (isPreflight(request)) {
+   this.preflight(request, response, clientAllowed, originHeaderValue);
+   return;
+  }
+
   if (clientAllowed) {
    response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN,
     originHeaderValue);
+   response.addHeader(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+   if (this.allowCredentials) {
+    response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+   }
   }
 
   chain.doFilter(req, res);
  }
 
+ // answered here so preflights never reach Spring MVC, Zuul or downstream
+ private void preflight(HttpServletRequest request,
+  HttpServletResponse response, boolean clientAllowed, String origin) {
+  String requestMethod = request
+   .getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+  response.addHeader(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+  if (!clientAllowed || !this.allowedMethods.contains(requestMethod)) {
+   response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+   return;
+  }
+  String allowedHeaders = this.allowedHeadersHeader != null
+   ? this.allowedHeadersHeader : request
+    .getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+  response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+  response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS,
+   this.allowedMethodsHeader);
+  if (StringUtils.hasText(allowedHeaders)) {
+   response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, allowedHeaders);
+  }
+  if (this.allowCredentials) {
+   response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+  }
+  response.setHeader(HttpHeaders.ACCESS_CONTROL_MAX_AGE, this.maxAgeHeader);
+  response.setStatus(HttpServletResponse.SC_OK);
+ }
+
+ private static boolean isPreflight(HttpServletRequest request) {
+  return HttpMethod.OPTIONS.matches(request.getMethod())
+   && request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD) != null;
+ }
+
+ private static String join(List<String> values) {
+  return StringUtils.collectionToDelimitedString(values, ", ");
+ }
+
  // <3>
  private boolean isClientAllowed(String origin) {
-  if (StringUtils.hasText(origin)) {
-   URI originUri = URI.create(origin);
-   int port = originUri.getPort();
-   String match = originUri.getHost() + ':' + (port <= 0 ? 80 : port);
-
-   this.catalog.forEach((k, v) -> {
-    String collect = v
-     .stream()
-     .map(
-      si -> si.getHost() + ':' + si.getPort() + '(' + si.getServiceId() + ')')
-     .collect(Collectors.joining());
-  });
-
-   boolean svcMatch = this.catalog
-    .keySet()
-    .stream()
-    .anyMatch(
-     serviceId -> this.catalog.get(serviceId).stream()
-      .map(si -> si.getHost() + ':' + si.getPort())
-      .anyMatch(hp -> hp.equalsIgnoreCase(match)));
-   return svcMatch;
-  }
-  return false;
+  return StringUtils.hasText(origin) && this.originIndex.isAllowed(origin);
  }
 
  // <4>
- @EventListener(HeartbeatEvent.class)
- public void onHeartbeatEvent(HeartbeatEvent e) {
-  this.refreshCatalog();
+ @EventListener(DiscoveryCatalogChangedEvent.class)
+ public void onDiscoveryCatalogChangedEvent(DiscoveryCatalogChangedEvent e) {
+  this.refreshCatalog(e.getCurrent());
  }
 
- private void refreshCatalog() {
-  discoveryClient.getServices().forEach(
-   svc -> this.catalog.put(svc, this.discoveryClient.getInstances(svc)));
+ private void refreshCatalog(DiscoverySnapshot snapshot) {
+  Set<String> origins = new HashSet<>();
+  snapshot.getServices().forEach(
+   svc -> snapshot.getInstances(svc).forEach(
+    si -> origins.add(OriginIndex.normalize(si))));
+  OriginIndex index = new OriginIndex(origins, this.originCacheSize);
+  if (!index.hasSameOrigins(this.originIndex)) {
+   this.originIndex = index;
+   this.log.debug("rebuilt CORS origin index with " + origins.size()
+    + " origin(s)");
+  }
  }
 
  @Override
@@ -107,7 +157,54 @@ class CorsFilter implements Filter {
  }
 
  private String originFor(HttpServletRequest request) {
-  return StringUtils.hasText(request.getHeader(HttpHeaders.ORIGIN)) ? request
-   .getHeader(HttpHeaders.ORIGIN) : request.getHeader(HttpHeaders.REFERER);
+  String origin = request.getHeader(HttpHeaders.ORIGIN);
+  return StringUtils.hasText(origin) ? origin : request
+   .getHeader(HttpHeaders.REFERER);
+ }
+
+ // normalized host:port origins plus the decisions made against them,
+ // swapped as one unit whenever the catalog changes
+ private static class OriginIndex {
+
+  private final Set<String> origins;
+
+  private final Cache<String, Boolean> decisions;
+
+  OriginIndex(Set<String> origins, long cacheSize) {
+   this.origins = Collections.unmodifiableSet(origins);
+   this.decisions = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  static String normalize(ServiceInstance si) {
+   return normalize(si.getHost(), si.getPort());
+  }
+
+  static String normalize(String host, int port) {
+   return host.toLowerCase(Locale.ROOT) + ':' + (port <= 0 ? 80 : port);
+  }
+
+  boolean isAllowed(String origin) {
+   Boolean allowed = this.decisions.getIfPresent(origin);
+   if (allowed == null) {
+    allowed = this.origins.contains(parse(origin));
+    this.decisions.put(origin, allowed);
+   }
+   return allowed;
+  }
+
+  boolean hasSameOrigins(OriginIndex other) {
+   return other != null && other.origins.equals(this.origins);
+  }
+
+  private static String parse(String origin) {
+   try {
+    URI originUri = URI.create(origin);
+    return originUri.getHost() == null ? null : normalize(originUri.getHost(),
+     originUri.getPort());
+   }
+   catch (IllegalArgumentException e) {
+    return null;
+   }
+  }
  }
 }
@@ -0,0 +1,25 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("cors")
+class CorsProperties {
+
+ private long originCacheSize = 10_000;
+
+ private List<String> allowedMethods = Arrays.asList("GET", "HEAD", "POST",
+  "PUT", "DELETE", "OPTIONS");
+
+ // "*" echoes whatever the browser asked for
+ private List<String> allowedHeaders = Arrays.asList("*");
+
+ private boolean allowCredentials = true;
+
+ // seconds a browser may cache a preflight response
+ private long maxAge = 1800;
+}
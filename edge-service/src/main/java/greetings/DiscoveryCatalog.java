@@ -0,0 +1,106 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// one shared, periodically refreshed view of the registry. consumers read
+// getSnapshot() or listen for DiscoveryCatalogChangedEvent, which is only
+// published (on the refresh thread) when the set of instances really changed.
+@Component
+class DiscoveryCatalog {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final DiscoveryClient discoveryClient;
+
+ private final ApplicationEventPublisher publisher;
+
+ private final long refreshInterval;
+
+ private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "discovery-catalog");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ private volatile DiscoverySnapshot snapshot = DiscoverySnapshot.EMPTY;
+
+ @Autowired
+ public DiscoveryCatalog(DiscoveryClient discoveryClient,
+  ApplicationEventPublisher publisher,
+  @Value("${discovery.catalog.refresh-interval:5000}") long refreshInterval) {
+  this.discoveryClient = discoveryClient;
+  this.publisher = publisher;
+  this.refreshInterval = refreshInterval;
+  this.snapshot = this.load();
+ }
+
+ DiscoverySnapshot getSnapshot() {
+  return this.snapshot;
+ }
+
+ @PostConstruct
+ public void start() {
+  this.scheduler.scheduleWithFixedDelay(this::refresh, this.refreshInterval,
+   this.refreshInterval, TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ // never blocks the heartbeat thread; bursts of heartbeats collapse into a
+ // single pending refresh
+ @EventListener(HeartbeatEvent.class)
+ public void onHeartbeatEvent(HeartbeatEvent event) {
+  if (this.refreshPending.compareAndSet(false, true)) {
+   this.scheduler.execute(this::refresh);
+  }
+ }
+
+ private void refresh() {
+  this.refreshPending.set(false);
+  try {
+   DiscoverySnapshot previous = this.snapshot;
+   DiscoverySnapshot current = this.load();
+   DiscoveryCatalogChangedEvent event = new DiscoveryCatalogChangedEvent(this,
+    previous, current);
+   if (event.hasChanges()) {
+    this.snapshot = current;
+    this.publisher.publishEvent(event);
+   }
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't refresh the discovery catalog", e);
+  }
+ }
+
+ private DiscoverySnapshot load() {
+  Map<String, List<ServiceInstance>> instances = new HashMap<>();
+  this.discoveryClient.getServices().forEach(
+   svc -> instances.put(svc, this.discoveryClient.getInstances(svc)));
+  return new DiscoverySnapshot(instances);
+ }
+}
@@ -0,0 +1,75 @@
+package greetings;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.*;
+
+class DiscoveryCatalogChangedEvent extends ApplicationEvent {
+
+ private final DiscoverySnapshot previous;
+
+ private final DiscoverySnapshot current;
+
+ private final Set<String> addedServices = new HashSet<>();
+
+ private final Set<String> removedServices = new HashSet<>();
+
+ private final Set<String> changedServices = new HashSet<>();
+
+ private final List<ServiceInstance> addedInstances = new ArrayList<>();
+
+ DiscoveryCatalogChangedEvent(Object source, DiscoverySnapshot previous,
+  DiscoverySnapshot current) {
+  super(source);
+  this.previous = previous;
+  this.current = current;
+
+  previous.getServices().stream()
+   .filter(serviceId -> !current.getServices().contains(serviceId))
+   .forEach(this.removedServices::add);
+
+  current.getServices().forEach(serviceId -> {
+   Set<String> before = previous.getAddresses(serviceId);
+   if (!previous.getServices().contains(serviceId)) {
+    this.addedServices.add(serviceId);
+   }
+   else if (!before.equals(current.getAddresses(serviceId))) {
+    this.changedServices.add(serviceId);
+   }
+   current.getInstances(serviceId).stream()
+    .filter(si -> !before.contains(DiscoverySnapshot.address(si)))
+    .forEach(this.addedInstances::add);
+  });
+ }
+
+ boolean hasChanges() {
+  return !(this.addedServices.isEmpty() && this.removedServices.isEmpty()
+   && this.changedServices.isEmpty());
+ }
+
+ DiscoverySnapshot getPrevious() {
+  return this.previous;
+ }
+
+ DiscoverySnapshot getCurrent() {
+  return this.current;
+ }
+
+ Set<String> getAddedServices() {
+  return Collections.unmodifiableSet(this.addedServices);
+ }
+
+ Set<String> getRemovedServices() {
+  return Collections.unmodifiableSet(this.removedServices);
+ }
+
+ Set<String> getChangedServices() {
+  return Collections.unmodifiableSet(this.changedServices);
+ }
+
+ // instances that were not registered in the previous snapshot
+ List<ServiceInstance> getAddedInstances() {
+  return Collections.unmodifiableList(this.addedInstances);
+ }
+}
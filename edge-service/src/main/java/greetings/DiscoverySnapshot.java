@@ -0,0 +1,55 @@
+package greetings;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+final class DiscoverySnapshot {
+
+ static final DiscoverySnapshot EMPTY = new DiscoverySnapshot(
+  Collections.emptyMap());
+
+ private final Map<String, List<ServiceInstance>> instances;
+
+ private final Map<String, Set<String>> addresses;
+
+ private final Map<String, String> services;
+
+ DiscoverySnapshot(Map<String, List<ServiceInstance>> instances) {
+  Map<String, List<ServiceInstance>> instancesCopy = new HashMap<>();
+  Map<String, Set<String>> addressesCopy = new HashMap<>();
+  Map<String, String> servicesCopy = new HashMap<>();
+  instances.forEach((serviceId, serviceInstances) -> {
+   instancesCopy.put(serviceId,
+    Collections.unmodifiableList(new ArrayList<>(serviceInstances)));
+   addressesCopy.put(serviceId, Collections.unmodifiableSet(serviceInstances
+    .stream().map(DiscoverySnapshot::address).collect(Collectors.toSet())));
+   serviceInstances.forEach(si -> servicesCopy.put(address(si), serviceId));
+  });
+  this.instances = Collections.unmodifiableMap(instancesCopy);
+  this.addresses = Collections.unmodifiableMap(addressesCopy);
+  this.services = Collections.unmodifiableMap(servicesCopy);
+ }
+
+ static String address(ServiceInstance si) {
+  return si.getHost().toLowerCase(Locale.ROOT) + ':' + si.getPort();
+ }
+
+ Set<String> getServices() {
+  return this.instances.keySet();
+ }
+
+ List<ServiceInstance> getInstances(String serviceId) {
+  return this.instances.getOrDefault(serviceId, Collections.emptyList());
+ }
+
+ Set<String> getAddresses(String serviceId) {
+  return this.addresses.getOrDefault(serviceId, Collections.emptySet());
+ }
+
+ // the service registered at host:port, if any
+ String getService(String address) {
+  return this.services.get(address);
+ }
+}
@@ -0,0 +1,49 @@
+package greetings;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.net.URI;
+
+// what the RestTemplate and Feign wrappers learn about each call to another
+// service: the outlier detector gets its outcome, the latency recorder its
+// downstream time, keyed by the same route as the calling request's total.
+// the instance is taken from the call itself, and its service from the
+// registry, so neither depends on which load-balancing rule is installed.
+class DownstreamCalls {
+
+ // a call that got no response at all, counted like Zuul counts one
+ static final int FAILED = 500;
+
+ private final OutlierDetector outlierDetector;
+
+ private final LatencyRecorder latencyRecorder;
+
+ private final DiscoveryCatalog discoveryCatalog;
+
+ DownstreamCalls(OutlierDetector outlierDetector,
+  LatencyRecorder latencyRecorder, DiscoveryCatalog discoveryCatalog) {
+  this.outlierDetector = outlierDetector;
+  this.latencyRecorder = latencyRecorder;
+  this.discoveryCatalog = discoveryCatalog;
+ }
+
+ void record(URI uri, int status, long nanos) {
+  String instance = OutlierDetector.key(uri);
+  if (this.outlierDetector != null) {
+   this.outlierDetector.record(this.discoveryCatalog.getSnapshot()
+    .getService(instance), instance, nanos, status >= 500);
+  }
+  if (this.latencyRecorder != null) {
+   String route = RequestContextPropagation.route();
+   this.latencyRecorder.record(LatencyRecorder.DOWNSTREAM, route == null ? "-"
+    : route, status, instance, nanos);
+   // on the request thread, the request's total is tagged with it too
+   RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+   if (attributes != null) {
+    attributes.setAttribute(LatencyFilter.INSTANCE_ATTRIBUTE, instance,
+     RequestAttributes.SCOPE_REQUEST);
+   }
+  }
+ }
+}
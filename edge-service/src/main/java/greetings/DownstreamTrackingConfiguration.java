@@ -0,0 +1,50 @@
+package greetings;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
+//@formatter:off
+import org.springframework.cloud.netflix.feign.ribbon
+        .CachingSpringLoadBalancerFactory;
+import org.springframework.cloud.netflix.feign.ribbon
+        .LoadBalancerFeignClient;
+//@formatter:on
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+// the RestTemplate and Feign clients report every call's outcome and
+// latency; these replace the plain pooled ones from
+// security-autoconfiguration
+@Profile({ "outlier-detection", "latency" })
+@Configuration
+class DownstreamTrackingConfiguration {
+
+ @Bean
+ DownstreamCalls downstreamCalls(
+  ObjectProvider<OutlierDetector> outlierDetector,
+  ObjectProvider<LatencyRecorder> latencyRecorder,
+  DiscoveryCatalog discoveryCatalog) {
+  return new DownstreamCalls(outlierDetector.getIfAvailable(),
+   latencyRecorder.getIfAvailable(), discoveryCatalog);
+ }
+
+ @Bean
+ HttpComponentsClientHttpRequestFactory relayRequestFactory(
+  CloseableHttpClient httpClient, DownstreamCalls downstreamCalls) {
+  return new DownstreamTrackingRequestFactory(httpClient, downstreamCalls);
+ }
+
+ @Bean
+ Client downstreamTrackingFeignClient(CloseableHttpClient httpClient,
+  DownstreamCalls downstreamCalls,
+  CachingSpringLoadBalancerFactory cachingFactory,
+  SpringClientFactory clientFactory) {
+  return new LoadBalancerFeignClient(new DownstreamTrackingFeignClient(
+   new ApacheHttpClient(httpClient), downstreamCalls), cachingFactory,
+   clientFactory);
+ }
+}
@@ -0,0 +1,37 @@
+package greetings;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.IOException;
+import java.net.URI;
+
+// wrapped by LoadBalancerFeignClient, so it sees the chosen instance's URL
+class DownstreamTrackingFeignClient implements Client {
+
+ private final Client delegate;
+
+ private final DownstreamCalls calls;
+
+ DownstreamTrackingFeignClient(Client delegate, DownstreamCalls calls) {
+  this.delegate = delegate;
+  this.calls = calls;
+ }
+
+ @Override
+ public Response execute(Request request, Request.Options options)
+  throws IOException {
+  URI uri = URI.create(request.url());
+  long start = System.nanoTime();
+  try {
+   Response response = this.delegate.execute(request, options);
+   this.calls.record(uri, response.status(), System.nanoTime() - start);
+   return response;
+  }
+  catch (IOException | RuntimeException e) {
+   this.calls.record(uri, DownstreamCalls.FAILED, System.nanoTime() - start);
+   throw e;
+  }
+ }
+}
@@ -0,0 +1,78 @@
+package greetings;
+
+import org.apache.http.client.HttpClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+// the RestTemplate's interceptors, the load balancer among them, run before
+// the request factory, so requests made here already carry the address of
+// the instance Ribbon chose
+class DownstreamTrackingRequestFactory extends
+ HttpComponentsClientHttpRequestFactory {
+
+ private final DownstreamCalls calls;
+
+ DownstreamTrackingRequestFactory(HttpClient httpClient,
+  DownstreamCalls calls) {
+  super(httpClient);
+  this.calls = calls;
+ }
+
+ @Override
+ public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod)
+  throws IOException {
+  return new TrackedRequest(super.createRequest(uri, httpMethod));
+ }
+
+ private class TrackedRequest implements ClientHttpRequest {
+
+  private final ClientHttpRequest delegate;
+
+  TrackedRequest(ClientHttpRequest delegate) {
+   this.delegate = delegate;
+  }
+
+  @Override
+  public ClientHttpResponse execute() throws IOException {
+   long start = System.nanoTime();
+   try {
+    ClientHttpResponse response = this.delegate.execute();
+    calls.record(this.getURI(), response.getRawStatusCode(),
+     System.nanoTime() - start);
+    return response;
+   }
+   catch (IOException | RuntimeException e) {
+    calls.record(this.getURI(), DownstreamCalls.FAILED,
+     System.nanoTime() - start);
+    throw e;
+   }
+  }
+
+  @Override
+  public HttpMethod getMethod() {
+   return this.delegate.getMethod();
+  }
+
+  @Override
+  public URI getURI() {
+   return this.delegate.getURI();
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+   return this.delegate.getHeaders();
+  }
+
+  @Override
+  public OutputStream getBody() throws IOException {
+   return this.delegate.getBody();
+  }
+ }
+}
@@ -1,10 +1,13 @@
 package greetings;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.Map;
+import java.util.function.Supplier;
 
 // <1>
 @Profile("feign")
@@ -14,14 +17,34 @@ class FeignGreetingsClientApiGateway {
 
  private final GreetingsClient greetingsClient;
 
+ private final RequestCoalescer coalescer;
+
+ private final Hedger hedger;
+
  @Autowired
- FeignGreetingsClientApiGateway(GreetingsClient greetingsClient) {
+ FeignGreetingsClientApiGateway(GreetingsClient greetingsClient,
+  ObjectProvider<RequestCoalescer> coalescer, ObjectProvider<Hedger> hedger) {
   this.greetingsClient = greetingsClient;
+  this.coalescer = coalescer.getIfAvailable();
+  this.hedger = hedger.getIfAvailable();
  }
 
  // <2>
  @GetMapping("/feign/{name}")
- Map<String, String> feign(@PathVariable String name) {
-  return this.greetingsClient.greet(name);
+ Map<String, String> feign(@PathVariable String name, Principal principal) {
+  Supplier<Map<String, String>> call = this.hedged() ? () -> this.hedger
+   .execute("greetings-service", () -> this.greetingsClient.greet(name))
+   : () -> this.greetingsClient.greet(name);
+  if (this.coalescer == null) {
+   return call.get();
+  }
+  // the token is relayed downstream, so the answer depends on the caller
+  String key = "feign " + name + '|'
+   + (principal == null ? "" : principal.getName());
+  return this.coalescer.execute(key, call);
+ }
+
+ private boolean hedged() {
+  return this.hedger != null && this.hedger.isHedged("greetings-service");
  }
 }
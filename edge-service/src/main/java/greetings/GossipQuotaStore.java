@@ -0,0 +1,87 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// pushes this instance's report to every peer registered under the same
+// service id and answers with whatever the peers have pushed to us. the
+// pushes go out in parallel and nobody waits for them, so a slow peer only
+// delays its own copy; a peer whose last push is still in flight is skipped.
+class GossipQuotaStore extends InMemoryQuotaStore {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final DiscoveryCatalog discoveryCatalog;
+
+ private final RestTemplate restTemplate;
+
+ private final ExecutorService executor;
+
+ private final String serviceId;
+
+ private final String secret;
+
+ private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+ GossipQuotaStore(long ttlMillis, DiscoveryCatalog discoveryCatalog,
+  RestTemplate restTemplate, ExecutorService executor, String serviceId,
+  String secret) {
+  super(ttlMillis);
+  this.discoveryCatalog = discoveryCatalog;
+  this.restTemplate = restTemplate;
+  this.executor = executor;
+  this.serviceId = serviceId;
+  this.secret = secret;
+ }
+
+ boolean isPeer(String instanceId) {
+  return instanceId != null
+   && this.discoveryCatalog.getSnapshot().getInstances(this.serviceId)
+    .stream().anyMatch(si -> DiscoverySnapshot.address(si).equals(instanceId));
+ }
+
+ @Override
+ public Map<String, Long> exchange(String instanceId, Map<String, Long> demand) {
+  HttpHeaders headers = new HttpHeaders();
+  headers.set(QuotaGossipRestController.SECRET_HEADER, this.secret);
+  HttpEntity<QuotaReport> report = new HttpEntity<>(new QuotaReport(
+   instanceId, demand), headers);
+  for (ServiceInstance peer : this.discoveryCatalog.getSnapshot().getInstances(
+   this.serviceId)) {
+   String peerId = DiscoverySnapshot.address(peer);
+   if (!peerId.equals(instanceId) && this.inFlight.add(peerId)) {
+    try {
+     this.executor.execute(() -> this.send(peer, peerId, report));
+    }
+    catch (RejectedExecutionException e) {
+     this.inFlight.remove(peerId);
+    }
+   }
+  }
+  return super.exchange(instanceId, demand);
+ }
+
+ private void send(ServiceInstance peer, String peerId,
+  HttpEntity<QuotaReport> report) {
+  try {
+   this.restTemplate.postForLocation(peer.getUri() + "/throttling/quota",
+    report);
+  }
+  catch (Exception e) {
+   this.log.debug("couldn't send quota report to " + peer.getUri(), e);
+  }
+  finally {
+   this.inFlight.remove(peerId);
+  }
+ }
+}
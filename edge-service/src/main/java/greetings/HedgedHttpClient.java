@@ -0,0 +1,51 @@
+package greetings;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+// the pooled client the RestTemplate, Feign and the hedging route share,
+// handing each request to the hedged attempt it is sent from, so the losing
+// attempt's request can be aborted and its connection freed at once
+@SuppressWarnings("deprecation")
+class HedgedHttpClient extends CloseableHttpClient {
+
+ private final CloseableHttpClient delegate;
+
+ HedgedHttpClient(CloseableHttpClient delegate) {
+  this.delegate = delegate;
+ }
+
+ @Override
+ protected CloseableHttpResponse doExecute(HttpHost target,
+  HttpRequest request, HttpContext context) throws IOException,
+  ClientProtocolException {
+  if (request instanceof HttpUriRequest) {
+   Hedger.onAbort(((HttpUriRequest) request)::abort);
+  }
+  return this.delegate.execute(target, request, context);
+ }
+
+ @Override
+ public HttpParams getParams() {
+  return this.delegate.getParams();
+ }
+
+ @Override
+ public ClientConnectionManager getConnectionManager() {
+  return this.delegate.getConnectionManager();
+ }
+
+ @Override
+ public void close() throws IOException {
+  this.delegate.close();
+ }
+}
@@ -0,0 +1,268 @@
+package greetings;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// hedged requests: if an idempotent call hasn't answered by the time it is
+// slower than most of its route's recent calls, the same call is made again
+// and whichever answers first wins; the other is aborted. a budget earned
+// per request caps the extra load.
+class Hedger implements PublicMetrics {
+
+ // budget is kept in thousandths of a hedge
+ private static final long UNIT = 1000;
+
+ // the attempt running on this thread, for the HTTP client to hand its
+ // requests to. interrupting a thread blocked on a socket read doesn't stop
+ // the read, only aborting the request does
+ private static final ThreadLocal<Attempt> CURRENT = new ThreadLocal<>();
+
+ private final Map<String, RouteLatency> latencies = new ConcurrentHashMap<>();
+
+ private final AtomicLong budget = new AtomicLong();
+
+ private final LongAdder requests = new LongAdder();
+
+ private final LongAdder hedges = new LongAdder();
+
+ private final LongAdder hedgeWins = new LongAdder();
+
+ private final ExecutorService executor;
+
+ private final HedgingProperties properties;
+
+ private final RequestContextPropagation propagation;
+
+ private final long deposit;
+
+ private final long maxBudget;
+
+ Hedger(ExecutorService executor, HedgingProperties properties,
+  RequestContextPropagation propagation) {
+  this.executor = executor;
+  this.properties = properties;
+  this.propagation = propagation;
+  this.deposit = Math.round(properties.getBudgetRatio() * UNIT);
+  this.maxBudget = properties.getBudgetBurst() * UNIT;
+ }
+
+ boolean isHedged(String route) {
+  return this.properties.getRoutes().contains(route);
+ }
+
+ <T> T execute(String route, Supplier<T> attempt) {
+  this.requests.increment();
+  this.budget.accumulateAndGet(this.deposit,
+   (b, d) -> Math.min(b + d, this.maxBudget));
+  RouteLatency latency = this.latencyFor(route);
+  long delay = latency.hedgeDelay();
+  long start = System.nanoTime();
+  if (delay < 0) {
+   // nothing to hedge against yet, so no reason to leave this thread
+   T result = attempt.get();
+   latency.record(System.nanoTime() - start);
+   return result;
+  }
+
+  CompletionService<T> completions = new ExecutorCompletionService<>(
+   this.executor);
+  Attempt primaryAttempt = new Attempt();
+  Future<T> primary;
+  try {
+   // the pool hands off directly, so this either starts now or not at all
+   // and the delay below never counts time spent waiting for a thread
+   primary = completions.submit(this.task(primaryAttempt, attempt));
+  }
+  catch (RejectedExecutionException e) {
+   // too busy to hedge, so don't make it worse
+   return attempt.get();
+  }
+  Attempt hedgeAttempt = new Attempt();
+  Future<T> hedge = null;
+  Future<T> winner = null;
+  try {
+   Future<T> first = completions.poll(delay, TimeUnit.NANOSECONDS);
+   if (first == null) {
+    hedge = this.hedge(completions, this.task(hedgeAttempt, attempt));
+    first = completions.take();
+   }
+   try {
+    T result = first.get();
+    winner = first;
+    latency.record(System.nanoTime() - start);
+    if (first == hedge) {
+     this.hedgeWins.increment();
+    }
+    return result;
+   }
+   catch (ExecutionException e) {
+    if (hedge == null) {
+     throw unwrap(e);
+    }
+    // one attempt failed, the other may still come through
+    try {
+     Future<T> second = completions.take();
+     T result = second.get();
+     winner = second;
+     return result;
+    }
+    catch (ExecutionException ignored) {
+     throw unwrap(e);
+    }
+   }
+  }
+  catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   throw new IllegalStateException(e);
+  }
+  finally {
+   // the winner's response may still be being read by the caller
+   if (winner != primary) {
+    primary.cancel(true);
+    primaryAttempt.abort();
+   }
+   if (hedge != null && winner != hedge) {
+    hedge.cancel(true);
+    hedgeAttempt.abort();
+   }
+  }
+ }
+
+ // called by the HTTP client for every request it sends, on the thread
+ // sending it; does nothing outside a hedged attempt
+ static void onAbort(Runnable abort) {
+  Attempt attempt = CURRENT.get();
+  if (attempt != null) {
+   attempt.onAbort(abort);
+  }
+ }
+
+ private <T> Callable<T> task(Attempt current, Supplier<T> attempt) {
+  return this.propagation.wrap(() -> {
+   CURRENT.set(current);
+   try {
+    return attempt.get();
+   }
+   finally {
+    CURRENT.remove();
+   }
+  });
+ }
+
+ private <T> Future<T> hedge(CompletionService<T> completions, Callable<T> task) {
+  long b = this.budget.get();
+  while (b >= UNIT) {
+   if (this.budget.compareAndSet(b, b - UNIT)) {
+    try {
+     Future<T> hedge = completions.submit(task);
+     this.hedges.increment();
+     return hedge;
+    }
+    catch (RejectedExecutionException e) {
+     return null;
+    }
+   }
+   b = this.budget.get();
+  }
+  return null;
+ }
+
+ private RouteLatency latencyFor(String route) {
+  RouteLatency latency = this.latencies.get(route);
+  return latency != null ? latency : this.latencies.computeIfAbsent(route,
+   r -> new RouteLatency());
+ }
+
+ private static RuntimeException unwrap(ExecutionException e) {
+  if (e.getCause() instanceof RuntimeException) {
+   return (RuntimeException) e.getCause();
+  }
+  if (e.getCause() instanceof Error) {
+   throw (Error) e.getCause();
+  }
+  return new IllegalStateException(e.getCause());
+ }
+
+ @Override
+ public Collection<Metric<?>> metrics() {
+  Collection<Metric<?>> metrics = new ArrayList<>();
+  metrics.add(new Metric<>("hedging.requests", this.requests.sum()));
+  metrics.add(new Metric<>("hedging.hedges", this.hedges.sum()));
+  metrics.add(new Metric<>("hedging.hedge-wins", this.hedgeWins.sum()));
+  metrics.add(new Metric<>("hedging.budget", this.budget.get() / (double) UNIT));
+  this.latencies.forEach((route, latency) -> metrics.add(new Metric<>(
+   "hedging." + route + ".delay-ms", TimeUnit.NANOSECONDS.toMillis(Math.max(0,
+    latency.hedgeDelay())))));
+  return metrics;
+ }
+
+ // the abort actions of one attempt's requests. a request registered after
+ // the attempt lost is aborted straight away
+ private static class Attempt {
+
+  private final Queue<Runnable> aborts = new ConcurrentLinkedQueue<>();
+
+  private volatile boolean aborted;
+
+  void onAbort(Runnable abort) {
+   this.aborts.add(abort);
+   if (this.aborted) {
+    this.abort();
+   }
+  }
+
+  void abort() {
+   this.aborted = true;
+   for (Runnable abort; (abort = this.aborts.poll()) != null;) {
+    abort.run();
+   }
+  }
+ }
+
+ // two histograms, the filling one and the last full one, so the delay
+ // follows the route as it speeds up or slows down
+ private class RouteLatency {
+
+  private volatile Histogram current = new Histogram();
+
+  private volatile Histogram previous = new Histogram();
+
+  private volatile long rotateAt = System.nanoTime()
+   + TimeUnit.MILLISECONDS.toNanos(properties.getWindow());
+
+  void record(long nanos) {
+   long now = System.nanoTime();
+   if (now - this.rotateAt >= 0) {
+    this.rotate(now);
+   }
+   this.current.record(nanos);
+  }
+
+  long hedgeDelay() {
+   Histogram histogram = this.previous.count() >= properties.getMinSamples()
+    ? this.previous : this.current;
+   if (histogram.count() < properties.getMinSamples()) {
+    return -1;
+   }
+   return Math.max(histogram.percentile(properties.getPercentile()),
+    TimeUnit.MILLISECONDS.toNanos(properties.getMinDelay()));
+  }
+
+  private synchronized void rotate(long now) {
+   if (now - this.rotateAt >= 0) {
+    this.previous = this.current;
+    this.current = new Histogram();
+    this.rotateAt = now + TimeUnit.MILLISECONDS.toNanos(properties.getWindow());
+   }
+  }
+ }
+}
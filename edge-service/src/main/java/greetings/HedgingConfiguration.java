@@ -0,0 +1,62 @@
+package greetings;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Profile("hedging")
+@Configuration
+@EnableConfigurationProperties(HedgingProperties.class)
+class HedgingConfiguration {
+
+ @Bean(destroyMethod = "shutdownNow")
+ ExecutorService hedgingExecutor(HedgingProperties properties) {
+  AtomicInteger threads = new AtomicInteger();
+  // no queue: an attempt waiting for a thread would already be late, so
+  // when every thread is busy the caller makes the call itself, unhedged
+  return new ThreadPoolExecutor(properties.getThreads(),
+   properties.getThreads(), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+   runnable -> {
+    Thread thread = new Thread(runnable, "hedging-"
+     + threads.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+   });
+ }
+
+ @Bean
+ Hedger hedger(HedgingProperties properties,
+  RequestContextPropagation propagation) {
+  return new Hedger(this.hedgingExecutor(properties), properties,
+   propagation);
+ }
+
+ // so the request of a losing attempt can be aborted, whichever of the
+ // RestTemplate, Feign or the hedging route sent it
+ @Bean
+ static BeanPostProcessor hedgedHttpClientPostProcessor() {
+  return new BeanPostProcessor() {
+
+   @Override
+   public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    return bean;
+   }
+
+   @Override
+   public Object postProcessAfterInitialization(Object bean, String beanName) {
+    return bean instanceof CloseableHttpClient
+     && !(bean instanceof HedgedHttpClient) ? new HedgedHttpClient(
+     (CloseableHttpClient) bean) : bean;
+   }
+  };
+ }
+}
@@ -0,0 +1,35 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("hedging")
+class HedgingProperties {
+
+ // zuul route ids and service ids that may be hedged. GETs only
+ private List<String> routes = new ArrayList<>();
+
+ // a second attempt starts once the first is slower than this percentile
+ private double percentile = 95;
+
+ // never hedge sooner than this (ms), however fast the route usually is
+ private long minDelay = 5;
+
+ // below this many samples the delay is unknown and nothing is hedged
+ private long minSamples = 100;
+
+ // latencies older than two windows are forgotten (ms)
+ private long window = 10_000;
+
+ // hedges allowed per request, i.e. at most 5% extra load ...
+ private double budgetRatio = 0.05;
+
+ // ... with this many saved up for a burst of slow responses
+ private int budgetBurst = 10;
+
+ private int threads = 64;
+}
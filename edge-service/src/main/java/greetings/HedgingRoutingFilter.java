@@ -0,0 +1,205 @@
+package greetings;
+
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import com.netflix.zuul.exception.ZuulException;
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.util.ZuulRuntimeException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// routes GETs on hedged routes itself, just ahead of RibbonRoutingFilter.
+// the hedge asks Ribbon for another instance than the first attempt got, and
+// whichever request loses is aborted (see HedgedHttpClient), which also
+// frees its connection. going around RibbonRoutingFilter means no Hystrix
+// command and no Ribbon retries for these requests, only the client's
+// timeouts; Ribbon's server stats, the outlier detector and the latency
+// recorder are fed here instead, so the load-balancing rule still sees them.
+@Profile("hedging")
+@Component
+class HedgingRoutingFilter extends ZuulFilter {
+
+ private static final int CHOOSE_ATTEMPTS = 3;
+
+ private final Hedger hedger;
+
+ private final SpringClientFactory clientFactory;
+
+ private final CloseableHttpClient httpClient;
+
+ private final ProxyRequestHelper helper;
+
+ private final OutlierDetector outlierDetector;
+
+ @Autowired
+ public HedgingRoutingFilter(Hedger hedger, SpringClientFactory clientFactory,
+  CloseableHttpClient httpClient, ProxyRequestHelper helper,
+  ObjectProvider<OutlierDetector> outlierDetector) {
+  this.hedger = hedger;
+  this.clientFactory = clientFactory;
+  this.httpClient = httpClient;
+  this.helper = helper;
+  this.outlierDetector = outlierDetector.getIfAvailable();
+ }
+
+ @Override
+ public String filterType() {
+  return "route";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 9;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.sendZuulResponse() && context.getRouteHost() == null
+   && context.get("serviceId") != null
+   && HttpMethod.GET.matches(context.getRequest().getMethod())
+   && this.hedger.isHedged((String) context.get("proxy"));
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  HttpServletRequest request = context.getRequest();
+  String serviceId = (String) context.get("serviceId");
+  URI path = URI.create((String) context.get("requestURI")
+   + this.helper.getQueryString(this.helper.buildZuulRequestQueryParams(request)));
+  MultiValueMap<String, String> headers = this.helper
+   .buildZuulRequestHeaders(request);
+
+  AtomicReference<Server> firstChoice = new AtomicReference<>();
+  try {
+   Attempt winner = this.hedger.execute((String) context.get("proxy"),
+    () -> this.attempt(serviceId, this.choose(serviceId, firstChoice), path,
+     headers));
+   CloseableHttpResponse response = winner.response;
+   // for the latency post filter, as the load-balancing rule would
+   context.set(OutlierDetectionPostFilter.INSTANCE_KEY, winner.instance);
+   this.helper.setResponse(response.getStatusLine().getStatusCode(),
+    response.getEntity() == null ? null : response.getEntity().getContent(),
+    revertHeaders(response.getAllHeaders()));
+  }
+  catch (IOException | RuntimeException e) {
+   throw new ZuulRuntimeException(new ZuulException(e,
+    HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage()));
+  }
+  finally {
+   // done here, one way or another; don't let Ribbon route it again
+   context.remove("serviceId");
+   // an attempt run inline left the rule's choice behind, but every attempt
+   // has been recorded already
+   context.remove(OutlierDetectionPostFilter.START_KEY);
+  }
+  return null;
+ }
+
+ private Attempt attempt(String serviceId, Server server, URI path,
+  MultiValueMap<String, String> headers) {
+  RibbonLoadBalancerContext balancer = this.clientFactory
+   .getLoadBalancerContext(serviceId);
+  HttpGet get = new HttpGet(balancer.reconstructURIWithServer(server, path));
+  headers.forEach((name, values) -> values.forEach(
+   value -> get.addHeader(name, value)));
+  String instance = OutlierDetector.key(server.getHost(), server.getPort());
+  ServerStats stats = balancer.getServerStats(server);
+  balancer.noteOpenConnection(stats);
+  long start = System.nanoTime();
+  try {
+   CloseableHttpResponse response = this.httpClient.execute(get);
+   long nanos = System.nanoTime() - start;
+   balancer.noteRequestCompletion(stats, response, null,
+    TimeUnit.NANOSECONDS.toMillis(nanos));
+   this.record(serviceId, instance, nanos, response.getStatusLine()
+    .getStatusCode() >= 500);
+   return new Attempt(instance, response);
+  }
+  catch (IOException e) {
+   long nanos = System.nanoTime() - start;
+   if (get.isAborted()) {
+    // lost the race; that says nothing about the instance
+    if (stats != null) {
+     stats.decrementActiveRequestsCount();
+    }
+   }
+   else {
+    balancer.noteRequestCompletion(stats, null, e,
+     TimeUnit.NANOSECONDS.toMillis(nanos));
+    this.record(serviceId, instance, nanos, true);
+   }
+   throw new UncheckedIOException(e);
+  }
+ }
+
+ private void record(String serviceId, String instance, long nanos,
+  boolean failed) {
+  if (this.outlierDetector != null) {
+   this.outlierDetector.record(serviceId, instance, nanos, failed);
+  }
+ }
+
+ // the first attempt takes Ribbon's choice, the hedge tries for another one
+ private Server choose(String serviceId, AtomicReference<Server> firstChoice) {
+  ILoadBalancer loadBalancer = this.clientFactory.getLoadBalancer(serviceId);
+  Server server = loadBalancer == null ? null : loadBalancer
+   .chooseServer("default");
+  if (server == null) {
+   throw new IllegalStateException("no instances available for " + serviceId);
+  }
+  if (firstChoice.compareAndSet(null, server)) {
+   return server;
+  }
+  String first = firstChoice.get().getHostPort();
+  for (int i = 1; i < CHOOSE_ATTEMPTS && first.equals(server.getHostPort());
+   i++) {
+   Server other = loadBalancer.chooseServer("default");
+   server = other != null ? other : server;
+  }
+  return server;
+ }
+
+ private static MultiValueMap<String, String> revertHeaders(Header[] headers) {
+  MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+  for (Header header : headers) {
+   map.add(header.getName(), header.getValue());
+  }
+  return map;
+ }
+
+ private static class Attempt {
+
+  private final String instance;
+
+  private final CloseableHttpResponse response;
+
+  Attempt(String instance, CloseableHttpResponse response) {
+   this.instance = instance;
+   this.response = response;
+  }
+ }
+}
@@ -0,0 +1,122 @@
+package greetings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// a lock-free, log-linear histogram in the spirit of HdrHistogram: every
+// power of two is split into 8 linear sub-buckets, which bounds the error of
+// any reported percentile to 12.5% while recording is a single atomic add.
+final class Histogram {
+
+ private static final int SUB_BUCKET_BITS = 3;
+
+ private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+ private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+ private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+ private final LongAdder count = new LongAdder();
+
+ private final LongAdder sum = new LongAdder();
+
+ private final AtomicLong max = new AtomicLong();
+
+ void record(long value) {
+  long v = Math.max(0, value);
+  this.counts.incrementAndGet(indexFor(v));
+  this.count.increment();
+  this.sum.add(v);
+  if (v > this.max.get()) {
+   this.max.accumulateAndGet(v, Math::max);
+  }
+ }
+
+ long count() {
+  return this.count.sum();
+ }
+
+ long max() {
+  return this.max.get();
+ }
+
+ double mean() {
+  long n = this.count();
+  return n == 0 ? 0 : this.sum.sum() / (double) n;
+ }
+
+ // the highest value that can be in the bucket holding the given percentile
+ long percentile(double percentile) {
+  long n = this.count();
+  if (n == 0) {
+   return 0;
+  }
+  long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0D));
+  long seen = 0;
+  for (int i = 0; i < BUCKETS; i++) {
+   seen += this.counts.get(i);
+   if (seen >= rank) {
+    return Math.min(highestValueAt(i), this.max());
+   }
+  }
+  return this.max();
+ }
+
+ // not atomic: a sample recorded meanwhile may be partly kept
+ void reset() {
+  for (int i = 0; i < BUCKETS; i++) {
+   if (this.counts.get(i) != 0) {
+    this.counts.set(i, 0);
+   }
+  }
+  this.count.reset();
+  this.sum.reset();
+  this.max.set(0);
+ }
+
+ void addTo(Histogram other) {
+  for (int i = 0; i < BUCKETS; i++) {
+   long c = this.counts.get(i);
+   if (c != 0) {
+    other.counts.addAndGet(i, c);
+   }
+  }
+  other.count.add(this.count.sum());
+  other.sum.add(this.sum.sum());
+  other.max.accumulateAndGet(this.max(), Math::max);
+ }
+
+ Map<String, Object> summary() {
+  Map<String, Object> summary = new LinkedHashMap<>();
+  summary.put("count", this.count());
+  summary.put("mean", this.mean());
+  summary.put("p50", this.percentile(50));
+  summary.put("p90", this.percentile(90));
+  summary.put("p99", this.percentile(99));
+  summary.put("p999", this.percentile(99.9));
+  summary.put("max", this.max());
+  return summary;
+ }
+
+ private static int indexFor(long value) {
+  if (value < SUB_BUCKETS) {
+   return (int) value;
+  }
+  int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+  int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+  return (shift + 1) * SUB_BUCKETS + sub;
+ }
+
+ private static long highestValueAt(int index) {
+  if (index < SUB_BUCKETS) {
+   return index;
+  }
+  int shift = index / SUB_BUCKETS - 1;
+  long sub = index % SUB_BUCKETS;
+  long highest = ((SUB_BUCKETS + sub + 1) << shift) - 1;
+  return highest < 0 ? Long.MAX_VALUE : highest;
+ }
+}
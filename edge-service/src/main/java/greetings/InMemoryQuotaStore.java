@@ -0,0 +1,48 @@
+package greetings;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// keeps the latest report of every instance in process. shared between
+// several limiters it stands in for a real cluster; the gossip store builds
+// on it to hold what peers sent us.
+class InMemoryQuotaStore implements QuotaStore {
+
+ private final Map<String, Received> reports = new ConcurrentHashMap<>();
+
+ private final long ttl;
+
+ InMemoryQuotaStore(long ttlMillis) {
+  this.ttl = ttlMillis;
+ }
+
+ void accept(QuotaReport report) {
+  this.reports.put(report.getInstanceId(),
+   new Received(System.currentTimeMillis(), report.getDemand()));
+ }
+
+ @Override
+ public Map<String, Long> exchange(String instanceId, Map<String, Long> demand) {
+  this.accept(new QuotaReport(instanceId, demand));
+  long oldest = System.currentTimeMillis() - this.ttl;
+  this.reports.values().removeIf(r -> r.receivedAt < oldest);
+  Map<String, Long> totals = new HashMap<>();
+  this.reports.values().forEach(
+   r -> r.demand.forEach((key, requests) -> totals.merge(key, requests,
+    Long::sum)));
+  return totals;
+ }
+
+ private static class Received {
+
+  private final long receivedAt;
+
+  private final Map<String, Long> demand;
+
+  Received(long receivedAt, Map<String, Long> demand) {
+   this.receivedAt = receivedAt;
+   this.demand = demand;
+  }
+ }
+}
@@ -0,0 +1,161 @@
+package greetings;
+
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties.ZuulRoute;
+//@formatter:off
+import org.springframework.cloud.netflix.zuul.filters.discovery
+        .DiscoveryClientRouteLocator;
+import org.springframework.cloud.netflix.zuul.filters.discovery
+        .ServiceRouteMapper;
+//@formatter:on
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// SimpleRouteLocator tries every route pattern in turn on every request.
+// here the patterns sit in a trie keyed by their literal leading segments,
+// so a lookup walks the path once and only tries the few patterns found
+// along the way, still honouring the configured route order. the trie is
+// rebuilt only when the routes really change, not on every heartbeat.
+class IndexedRouteLocator extends DiscoveryClientRouteLocator {
+
+ private final PathMatcher pathMatcher = new AntPathMatcher();
+
+ private volatile RouteIndex index;
+
+ IndexedRouteLocator(String servletPath, DiscoveryClient discovery,
+  ZuulProperties properties, ServiceRouteMapper serviceRouteMapper) {
+  super(servletPath, discovery, properties, serviceRouteMapper);
+ }
+
+ @Override
+ protected ZuulRoute getZuulRoute(String adjustedPath) {
+  if (this.matchesIgnoredPatterns(adjustedPath)) {
+   return null;
+  }
+  return this.indexFor(this.getRoutesMap()).match(adjustedPath);
+ }
+
+ private RouteIndex indexFor(Map<String, ZuulRoute> routes) {
+  RouteIndex index = this.index;
+  if (index == null || index.routes != routes) {
+   // a refresh hands us a new map, usually with the very same routes
+   index = index != null && sameRoutes(index.routes, routes) ? new RouteIndex(
+    routes, index.root) : new RouteIndex(routes, this.pathMatcher);
+   this.index = index;
+  }
+  return index;
+ }
+
+ // order matters as much as content
+ private static boolean sameRoutes(Map<String, ZuulRoute> a,
+  Map<String, ZuulRoute> b) {
+  return a.size() == b.size()
+   && new ArrayList<>(a.entrySet()).equals(new ArrayList<>(b.entrySet()));
+ }
+
+ private static List<String> segments(String path) {
+  List<String> segments = new ArrayList<>();
+  for (String segment : path.split("/")) {
+   if (!segment.isEmpty()) {
+    segments.add(segment);
+   }
+  }
+  return segments;
+ }
+
+ private static boolean isLiteral(String segment) {
+  return segment.indexOf('*') < 0 && segment.indexOf('?') < 0
+   && segment.indexOf('{') < 0;
+ }
+
+ private static class RouteIndex {
+
+  private final Map<String, ZuulRoute> routes;
+
+  private final Node root;
+
+  RouteIndex(Map<String, ZuulRoute> routes, Node root) {
+   this.routes = routes;
+   this.root = root;
+  }
+
+  RouteIndex(Map<String, ZuulRoute> routes, PathMatcher pathMatcher) {
+   this.routes = routes;
+   this.root = new Node();
+   int order = 0;
+   for (Map.Entry<String, ZuulRoute> entry : routes.entrySet()) {
+    Node node = this.root;
+    for (String segment : segments(entry.getKey())) {
+     if (!isLiteral(segment)) {
+      break;
+     }
+     node = node.children.computeIfAbsent(segment, s -> new Node());
+    }
+    node.candidates.add(new Candidate(order++, entry.getKey(),
+     entry.getValue(), pathMatcher));
+   }
+  }
+
+  ZuulRoute match(String path) {
+   Candidate best = this.root.bestMatch(path, null);
+   Node node = this.root;
+   for (String segment : segments(path)) {
+    node = node.children.get(segment);
+    if (node == null) {
+     break;
+    }
+    best = node.bestMatch(path, best);
+   }
+   return best == null ? null : best.route;
+  }
+ }
+
+ private static class Node {
+
+  private final Map<String, Node> children = new HashMap<>();
+
+  private final List<Candidate> candidates = new ArrayList<>();
+
+  // the earliest configured candidate wins, as it would in a linear scan
+  Candidate bestMatch(String path, Candidate best) {
+   for (Candidate candidate : this.candidates) {
+    if (best != null && best.order < candidate.order) {
+     break;
+    }
+    if (candidate.matches(path)) {
+     return candidate;
+    }
+   }
+   return best;
+  }
+ }
+
+ private static class Candidate {
+
+  private final int order;
+
+  private final String pattern;
+
+  private final ZuulRoute route;
+
+  private final PathMatcher pathMatcher;
+
+  Candidate(int order, String pattern, ZuulRoute route,
+   PathMatcher pathMatcher) {
+   this.order = order;
+   this.pattern = pattern;
+   this.route = route;
+   this.pathMatcher = pathMatcher;
+  }
+
+  boolean matches(String path) {
+   return this.pathMatcher.match(this.pattern, path);
+  }
+ }
+}
@@ -0,0 +1,78 @@
+package greetings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// one TokenBucket per key. the cache is segmented, so concurrent requests
+// for different keys don't contend, and idle buckets are evicted to keep
+// memory bounded no matter how many clients show up.
+class KeyedRateLimiter {
+
+ private final Cache<String, Entry> entries;
+
+ KeyedRateLimiter(long maxKeys, long idleTimeoutMillis) {
+  this.entries = CacheBuilder.newBuilder().maximumSize(maxKeys)
+   .expireAfterAccess(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+   .concurrencyLevel(Runtime.getRuntime().availableProcessors() * 4).build();
+ }
+
+ // returns 0 if a permit was taken, otherwise the nanos until one is free
+ long tryAcquire(String key, ThrottlingProperties.Limit limit) {
+  Entry entry = this.entries.getIfPresent(key);
+  if (entry == null) {
+   entry = this.entries.asMap().computeIfAbsent(key, k -> new Entry(limit));
+  }
+  entry.demand.increment();
+  return entry.bucket.tryAcquire(System.nanoTime());
+ }
+
+ long size() {
+  return this.entries.size();
+ }
+
+ // requests seen per key since the last call
+ Map<String, Long> drainDemand() {
+  Map<String, Long> demand = new HashMap<>();
+  this.entries.asMap().forEach((key, entry) -> {
+   long requests = entry.demand.sumThenReset();
+   if (requests > 0) {
+    demand.put(key, requests);
+   }
+  });
+  return demand;
+ }
+
+ // give every bucket the slice of its configured rate that matches this
+ // instance's share of the cluster-wide demand for that key. the +1 / +n
+ // smoothing keeps a floor for keys this instance hasn't seen yet and still
+ // sums to 1 across the cluster.
+ void rebalance(Map<String, Long> localDemand, Map<String, Long> clusterDemand,
+  int instances) {
+  this.entries.asMap().forEach((key, entry) -> {
+   long local = localDemand.getOrDefault(key, 0L);
+   long cluster = Math.max(local, clusterDemand.getOrDefault(key, local));
+   double share = (local + 1.0D) / (cluster + Math.max(1, instances));
+   entry.bucket.setRate(entry.limit.getPermitsPerSecond() * share,
+    (int) Math.max(1, Math.round(entry.limit.getBurst() * share)));
+  });
+ }
+
+ private static class Entry {
+
+  private final ThrottlingProperties.Limit limit;
+
+  private final TokenBucket bucket;
+
+  private final LongAdder demand = new LongAdder();
+
+  Entry(ThrottlingProperties.Limit limit) {
+   this.limit = limit;
+   this.bucket = new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst());
+  }
+ }
+}
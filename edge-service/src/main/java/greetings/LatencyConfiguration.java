@@ -0,0 +1,23 @@
+package greetings;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Profile("latency")
+@Configuration
+@EnableConfigurationProperties(LatencyProperties.class)
+class LatencyConfiguration {
+
+ @Bean
+ LatencyRecorder latencyRecorder(LatencyProperties properties) {
+  return new LatencyRecorder(properties);
+ }
+
+ @Bean
+ LatencyEndpoint latencyEndpoint(LatencyRecorder latencyRecorder,
+  LatencyProperties properties) {
+  return new LatencyEndpoint(latencyRecorder, properties);
+ }
+}
@@ -0,0 +1,29 @@
+package greetings;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class LatencyEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+ private final LatencyRecorder recorder;
+
+ private final LatencyProperties properties;
+
+ LatencyEndpoint(LatencyRecorder recorder, LatencyProperties properties) {
+  super("latency");
+  this.recorder = recorder;
+  this.properties = properties;
+ }
+
+ @Override
+ public Map<String, Object> invoke() {
+  Map<String, Object> result = new LinkedHashMap<>();
+  result.put("unit", "microseconds");
+  result.put("rangeMillis", this.properties.getWindow()
+   * this.properties.getWindows());
+  result.put("routes", this.recorder.summary());
+  return result;
+ }
+}
@@ -0,0 +1,105 @@
+package greetings;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// outermost, so total time covers every other filter, Zuul and MVC alike.
+// Zuul requests are keyed by route id, everything else by the handler's
+// mapping pattern, e.g. /api/resttemplate/{name}.
+@Profile("latency")
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class LatencyFilter implements Filter {
+
+ static final String ROUTE_ATTRIBUTE = LatencyFilter.class.getName()
+  + ".route";
+
+ static final String INSTANCE_ATTRIBUTE = LatencyFilter.class.getName()
+  + ".instance";
+
+ private final LatencyRecorder recorder;
+
+ @Autowired
+ public LatencyFilter(LatencyRecorder recorder) {
+  this.recorder = recorder;
+ }
+
+ @Override
+ public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+  throws IOException, ServletException {
+  HttpServletRequest request = HttpServletRequest.class.cast(req);
+  HttpServletResponse response = HttpServletResponse.class.cast(res);
+  long start = System.nanoTime();
+  boolean routed = request.getHeader(RequestTiming.REQUEST_START_HEADER) != null;
+  long queueWait = routed ? RequestTiming.queueWaitMillis(request) : -1;
+  try {
+   chain.doFilter(req, res);
+  }
+  finally {
+   if (request.isAsyncStarted()) {
+    request.getAsyncContext().addListener(new AsyncListener() {
+
+     @Override
+     public void onComplete(AsyncEvent event) {
+      record(request, response, start, queueWait);
+     }
+
+     @Override
+     public void onTimeout(AsyncEvent event) {
+     }
+
+     @Override
+     public void onError(AsyncEvent event) {
+     }
+
+     @Override
+     public void onStartAsync(AsyncEvent event) {
+     }
+    });
+   }
+   else {
+    this.record(request, response, start, queueWait);
+   }
+  }
+ }
+
+ private void record(HttpServletRequest request, HttpServletResponse response,
+  long start, long queueWait) {
+  String route = routeOf(request);
+  String instance = (String) request.getAttribute(INSTANCE_ATTRIBUTE);
+  int status = response.getStatus();
+  this.recorder.record(LatencyRecorder.TOTAL, route, status, instance,
+   System.nanoTime() - start);
+  if (queueWait >= 0) {
+   this.recorder.record(LatencyRecorder.QUEUE, route, status, instance,
+    TimeUnit.MILLISECONDS.toNanos(queueWait));
+  }
+ }
+
+ private static String routeOf(HttpServletRequest request) {
+  Object route = request.getAttribute(ROUTE_ATTRIBUTE);
+  if (route == null) {
+   route = request
+    .getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+  }
+  return route == null ? "-" : route.toString();
+ }
+
+ @Override
+ public void init(FilterConfig filterConfig) throws ServletException {
+ }
+
+ @Override
+ public void destroy() {
+ }
+}
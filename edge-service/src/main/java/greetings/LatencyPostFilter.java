@@ -0,0 +1,58 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// runs ahead of the other post filters, so the instance the load-balancing
+// rule chose is still in the context. only PeakEwmaRule leaves it there (the
+// p2c, outlier-detection and slow-start profiles) or the hedging route;
+// with Ribbon's stock rule, Zuul routes are recorded under instance "-".
+// the RestTemplate and Feign paths record their instance themselves, see
+// DownstreamCalls.
+@Profile("latency")
+@Component
+class LatencyPostFilter extends ZuulFilter {
+
+ private final LatencyRecorder recorder;
+
+ @Autowired
+ public LatencyPostFilter(LatencyRecorder recorder) {
+  this.recorder = recorder;
+ }
+
+ @Override
+ public String filterType() {
+  return "post";
+ }
+
+ @Override
+ public int filterOrder() {
+  return -2;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  return RequestContext.getCurrentContext().containsKey(
+   LatencyPreFilter.START_KEY);
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  long start = (Long) context.remove(LatencyPreFilter.START_KEY);
+  String instance = (String) context
+   .get(OutlierDetectionPostFilter.INSTANCE_KEY);
+  int status = context.getThrowable() != null ? 500 : context
+   .getResponseStatusCode();
+  this.recorder.record(LatencyRecorder.DOWNSTREAM, (String) context
+   .get("proxy"), status, instance, System.nanoTime() - start);
+  if (instance != null) {
+   context.getRequest().setAttribute(LatencyFilter.INSTANCE_ATTRIBUTE,
+    instance);
+  }
+  return null;
+ }
+}
@@ -0,0 +1,40 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// the last pre filter: whatever happens from here on is the downstream call
+@Profile("latency")
+@Component
+class LatencyPreFilter extends ZuulFilter {
+
+ static final String START_KEY = "latencyDownstreamStart";
+
+ @Override
+ public String filterType() {
+  return "pre";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 999;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.sendZuulResponse() && context.get("proxy") != null;
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  context.set(START_KEY, System.nanoTime());
+  // the servlet filter outlives Zuul's context, so it is told here
+  context.getRequest().setAttribute(LatencyFilter.ROUTE_ATTRIBUTE,
+   context.get("proxy"));
+  return null;
+ }
+}
@@ -0,0 +1,20 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("latency")
+class LatencyProperties {
+
+ // histograms roll over in windows this long (ms) ...
+ private long window = 10_000;
+
+ // ... and this many of them are kept
+ private int windows = 6;
+
+ // route, status class and instance combinations tracked at most. each one
+ // holds a histogram of about 4KB per window, i.e. about 24KB with six
+ // windows, so the default costs up to about 24MB
+ private long maxKeys = 1_000;
+}
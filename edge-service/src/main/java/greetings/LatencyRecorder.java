@@ -0,0 +1,62 @@
+package greetings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// rolling latency histograms by phase (queue, downstream, total), route,
+// status class and instance. values are kept in microseconds.
+class LatencyRecorder {
+
+ static final String QUEUE = "queue";
+
+ static final String DOWNSTREAM = "downstream";
+
+ static final String TOTAL = "total";
+
+ private final Cache<String, RollingHistogram> histograms;
+
+ private final LatencyProperties properties;
+
+ LatencyRecorder(LatencyProperties properties) {
+  this.properties = properties;
+  this.histograms = CacheBuilder.newBuilder()
+   .maximumSize(properties.getMaxKeys()).build();
+ }
+
+ static String statusClass(int status) {
+  return status <= 0 ? "none" : (status / 100) + "xx";
+ }
+
+ void record(String phase, String route, int status, String instance,
+  long nanos) {
+  String key = route + '|' + phase + '|' + statusClass(status) + '|'
+   + (instance == null ? "-" : instance);
+  RollingHistogram histogram = this.histograms.getIfPresent(key);
+  if (histogram == null) {
+   histogram = this.histograms.asMap().computeIfAbsent(key,
+    k -> new RollingHistogram(this.properties.getWindow(),
+     this.properties.getWindows()));
+  }
+  histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+ }
+
+ // route -> phase -> status class -> instance -> percentiles
+ @SuppressWarnings("unchecked")
+ Map<String, Object> summary() {
+  Map<String, Object> summary = new TreeMap<>();
+  this.histograms.asMap().forEach((key, histogram) -> {
+   String[] parts = key.split("\\|", 4);
+   Map<String, Object> level = summary;
+   for (int i = 0; i < 3; i++) {
+    level = (Map<String, Object>) level.computeIfAbsent(parts[i],
+     p -> new TreeMap<String, Object>());
+   }
+   level.put(parts[3], histogram.snapshot().summary());
+  });
+  return summary;
+ }
+}
@@ -0,0 +1,16 @@
+package greetings;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.netflix.ribbon.RibbonClients;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Feign, the load-balanced RestTemplate and Zuul routes all end up in
+// Ribbon, so one default rule covers all three. outlier ejection and slow
+// start work through this rule, so they switch it on too
+@Profile({ "p2c", "outlier-detection", "slow-start" })
+@Configuration
+@EnableConfigurationProperties(LoadBalancingProperties.class)
+@RibbonClients(defaultConfiguration = PeakEwmaRibbonConfiguration.class)
+class LoadBalancingConfiguration {
+}
@@ -0,0 +1,15 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("load-balancing")
+class LoadBalancingProperties {
+
+ // how quickly an instance's latency average forgets old samples (ms)
+ private long decayTime = 10_000;
+
+ // latency assumed for an instance we have not heard back from yet (ms)
+ private double defaultLatency = 50;
+}
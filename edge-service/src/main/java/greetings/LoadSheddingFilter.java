@@ -0,0 +1,142 @@
+package greetings;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// a servlet filter rather than a Zuul filter so it sees /api/** and static
+// content as well as the proxied routes. all classes share one in-flight
+// count; each class is only admitted while that count (and the queue wait)
+// is below its own share of the ceiling. it runs just behind the Spring
+// Security chain, so a request only counts as authenticated once its token
+// has actually been validated (cheap with the relay token cache).
+@Profile("shedding")
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+class LoadSheddingFilter implements Filter, PublicMetrics {
+
+ private final Rejection serviceUnavailable = new Rejection(
+  HttpStatus.SERVICE_UNAVAILABLE);
+
+ private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+ private final AtomicInteger inFlight = new AtomicInteger();
+
+ private final Map<RequestPriority, Integer> maxInFlight = new EnumMap<>(
+  RequestPriority.class);
+
+ private final Map<RequestPriority, Long> maxQueueWait = new EnumMap<>(
+  RequestPriority.class);
+
+ private final Map<RequestPriority, LongAdder> shed = new EnumMap<>(
+  RequestPriority.class);
+
+ @Autowired
+ public LoadSheddingFilter(LoadSheddingProperties properties) {
+  for (RequestPriority priority : RequestPriority.values()) {
+   double share = properties.shareOf(priority);
+   this.maxInFlight.put(priority,
+    (int) Math.ceil(properties.getMaxInFlight() * share));
+   this.maxQueueWait.put(priority,
+    (long) Math.ceil(properties.getMaxQueueWait() * share));
+   this.shed.put(priority, new LongAdder());
+  }
+ }
+
+ @Override
+ public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+  throws IOException, ServletException {
+  HttpServletRequest request = HttpServletRequest.class.cast(req);
+  HttpServletResponse response = HttpServletResponse.class.cast(res);
+  RequestPriority priority = RequestPriority.classify(request,
+   this.urlPathHelper.getPathWithinApplication(request));
+
+  if (RequestTiming.queueWaitMillis(request) > this.maxQueueWait
+   .get(priority) || !this.tryAcquire(this.maxInFlight.get(priority))) {
+   this.shed.get(priority).increment();
+   this.serviceUnavailable.reject(response, TimeUnit.SECONDS.toNanos(1));
+   return;
+  }
+  try {
+   chain.doFilter(req, res);
+  }
+  finally {
+   if (request.isAsyncStarted()) {
+    // DeferredResult and friends are still in flight; hold the slot until
+    // the response is actually done
+    request.getAsyncContext().addListener(new AsyncListener() {
+
+     @Override
+     public void onComplete(AsyncEvent event) {
+      inFlight.decrementAndGet();
+     }
+
+     @Override
+     public void onTimeout(AsyncEvent event) {
+     }
+
+     @Override
+     public void onError(AsyncEvent event) {
+     }
+
+     @Override
+     public void onStartAsync(AsyncEvent event) {
+     }
+    });
+   }
+   else {
+    this.inFlight.decrementAndGet();
+   }
+  }
+ }
+
+ @Override
+ public Collection<Metric<?>> metrics() {
+  Collection<Metric<?>> metrics = new ArrayList<>();
+  metrics.add(new Metric<>("shedding.inflight", this.inFlight.get()));
+  this.shed.forEach((priority, count) -> metrics.add(new Metric<>(
+   "shedding.shed." + priority.name().toLowerCase(Locale.ROOT), count.sum())));
+  return metrics;
+ }
+
+ private boolean tryAcquire(int ceiling) {
+  for (;;) {
+   int current = this.inFlight.get();
+   if (current >= ceiling) {
+    return false;
+   }
+   if (this.inFlight.compareAndSet(current, current + 1)) {
+    return true;
+   }
+  }
+ }
+
+ @Override
+ public void init(FilterConfig filterConfig) throws ServletException {
+ }
+
+ @Override
+ public void destroy() {
+ }
+}
@@ -0,0 +1,35 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("shedding")
+class LoadSheddingProperties {
+
+ // requests the edge is willing to have in progress at once
+ private int maxInFlight = 200;
+
+ // queue wait (as reported by the router's x-request-start header) past
+ // which the edge counts as saturated, in milliseconds
+ private long maxQueueWait = 1000;
+
+ // the fraction of max-in-flight and max-queue-wait each class may use;
+ // lower priority classes hit their ceiling, and are shed, first
+ private double authenticatedShare = 1.0D;
+
+ private double anonymousShare = 0.7D;
+
+ private double staticShare = 0.5D;
+
+ double shareOf(RequestPriority priority) {
+  switch (priority) {
+   case AUTHENTICATED:
+    return this.authenticatedShare;
+   case ANONYMOUS:
+    return this.anonymousShare;
+   default:
+    return this.staticShare;
+  }
+ }
+}
@@ -0,0 +1,25 @@
+package greetings;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// the RestTemplate and Feign clients feed the detector through
+// DownstreamTrackingConfiguration, Zuul through OutlierDetectionPostFilter
+@Profile("outlier-detection")
+@Configuration
+@EnableConfigurationProperties(OutlierDetectionProperties.class)
+class OutlierDetectionConfiguration {
+
+ @Bean
+ OutlierDetector outlierDetector(OutlierDetectionProperties properties) {
+  return new OutlierDetector(properties);
+ }
+
+ @Bean
+ OutlierDetectionEndpoint outlierDetectionEndpoint(
+  OutlierDetector outlierDetector) {
+  return new OutlierDetectionEndpoint(outlierDetector);
+ }
+}
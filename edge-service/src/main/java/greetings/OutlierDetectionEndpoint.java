@@ -0,0 +1,20 @@
+package greetings;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import java.util.Map;
+
+class OutlierDetectionEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+ private final OutlierDetector outlierDetector;
+
+ OutlierDetectionEndpoint(OutlierDetector outlierDetector) {
+  super("outliers");
+  this.outlierDetector = outlierDetector;
+ }
+
+ @Override
+ public Map<String, Object> invoke() {
+  return this.outlierDetector.summary();
+ }
+}
@@ -0,0 +1,71 @@
+package greetings;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+// Zuul's Ribbon client doesn't tell us which instance it used, so the
+// load-balancing rule leaves the choice in the request context (Hystrix
+// runs on the calling thread here) and the outcome is recorded afterwards
+@Profile("outlier-detection")
+@Component
+class OutlierDetectionPostFilter extends ZuulFilter {
+
+ static final String INSTANCE_KEY = "outlierDetectionInstance";
+
+ static final String START_KEY = "outlierDetectionStart";
+
+ private final OutlierDetector outlierDetector;
+
+ @Autowired
+ public OutlierDetectionPostFilter(OutlierDetector outlierDetector) {
+  this.outlierDetector = outlierDetector;
+ }
+
+ // called by the rule on every choice; only acts inside a proxied request.
+ // Zuul's context is only ever looked at on a request thread, since looking
+ // creates one, and elsewhere (Ribbon's, Hystrix's or our own pool threads)
+ // nothing would ever remove it again
+ static void chosen(Server server) {
+  if (RequestContextHolder.getRequestAttributes() == null) {
+   return;
+  }
+  RequestContext context = RequestContext.getCurrentContext();
+  if (context.get("proxy") != null) {
+   context.set(INSTANCE_KEY, OutlierDetector.key(server.getHost(),
+    server.getPort()));
+   context.set(START_KEY, System.nanoTime());
+  }
+ }
+
+ @Override
+ public String filterType() {
+  return "post";
+ }
+
+ @Override
+ public int filterOrder() {
+  return -1;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  return RequestContext.getCurrentContext().containsKey(START_KEY);
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  String instance = (String) context.get(INSTANCE_KEY);
+  long start = (Long) context.remove(START_KEY);
+  boolean failed = context.getThrowable() != null
+   || context.getResponseStatusCode() >= 500;
+  this.outlierDetector.record((String) context.get("serviceId"), instance,
+   System.nanoTime() - start, failed);
+  return null;
+ }
+}
@@ -0,0 +1,36 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("outlier-detection")
+class OutlierDetectionProperties {
+
+ // how often error rates and latencies are compared (ms)
+ private long interval = 10_000;
+
+ // instances with fewer calls in an interval aren't judged
+ private long minRequests = 10;
+
+ // share of failed calls in an interval that gets an instance ejected
+ private double maxErrorRate = 0.5;
+
+ // failures in a row that get an instance ejected at once
+ private int consecutiveFailures = 5;
+
+ // ejected when this many times slower than its service's median instance
+ private double latencyFactor = 3;
+
+ // the first ejection lasts this long, each one after it twice as long ...
+ private long baseEjectionTime = 30_000;
+
+ // ... up to this (ms)
+ private long maxEjectionTime = 300_000;
+
+ // never eject more than this share of a service's instances we know of
+ private int maxEjectionPercent = 50;
+
+ // a returning instance ramps up to its full share over this (ms)
+ private long recoveryTime = 30_000;
+}
@@ -0,0 +1,251 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// passive health checking: every downstream call reports its service,
+// instance, latency and outcome here. instances that fail too often, or are
+// much slower than the other instances of their service, are ejected from
+// load balancing for a while, longer each time, and ramp back up to their
+// full share once they return. services are judged, and capped, apart.
+class OutlierDetector {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+
+ private final OutlierDetectionProperties properties;
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "outlier-detection");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ OutlierDetector(OutlierDetectionProperties properties) {
+  this.properties = properties;
+ }
+
+ static String key(String host, int port) {
+  return host.toLowerCase(Locale.ROOT) + ':' + port;
+ }
+
+ static String key(URI uri) {
+  int port = uri.getPort() > 0 ? uri.getPort() : "https".equalsIgnoreCase(uri
+   .getScheme()) ? 443 : 80;
+  return key(uri.getHost(), port);
+ }
+
+ @PostConstruct
+ public void start() {
+  this.scheduler.scheduleWithFixedDelay(this::evaluate,
+   this.properties.getInterval(), this.properties.getInterval(),
+   TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ // an instance of no known service is its own peer group, so it is only
+ // ever judged against itself
+ void record(String service, String instance, long nanos, boolean failed) {
+  Instance state = this.instances.get(instance);
+  if (state == null) {
+   state = this.instances.computeIfAbsent(instance, i -> new Instance(
+    service == null ? instance : service.toLowerCase(Locale.ROOT)));
+  }
+  state.requests.increment();
+  state.latency.add(nanos);
+  state.lastSeen = System.nanoTime();
+  if (!failed) {
+   state.consecutiveFailures.set(0);
+   return;
+  }
+  state.failures.increment();
+  if (state.consecutiveFailures.incrementAndGet() >= this.properties
+   .getConsecutiveFailures()) {
+   synchronized (this) {
+    if (!state.isEjected(System.nanoTime())) {
+     this.eject(instance, state, "consecutive failures");
+    }
+   }
+  }
+ }
+
+ boolean isEjected(String instance) {
+  Instance state = this.instances.get(instance);
+  return state != null && state.isEjected(System.nanoTime());
+ }
+
+ // share of traffic an instance should get, from 0 while ejected to 1
+ double weight(String instance) {
+  Instance state = this.instances.get(instance);
+  if (state == null || state.ejectedUntil == 0) {
+   return 1;
+  }
+  long since = System.nanoTime() - state.ejectedUntil;
+  if (since < 0) {
+   return 0;
+  }
+  long recovery = TimeUnit.MILLISECONDS.toNanos(this.properties
+   .getRecoveryTime());
+  return since >= recovery ? 1 : Math.max(0.1, since / (double) recovery);
+ }
+
+ Map<String, Object> summary() {
+  long now = System.nanoTime();
+  Map<String, Object> summary = new TreeMap<>();
+  this.instances.forEach((instance, state) -> {
+   Map<String, Object> details = new LinkedHashMap<>();
+   details.put("service", state.service);
+   details.put("ejected", state.isEjected(now));
+   details.put("ejectedForMillis", state.isEjected(now) ? TimeUnit.NANOSECONDS
+    .toMillis(state.ejectedUntil - now) : 0);
+   details.put("ejections", state.ejections);
+   details.put("weight", this.weight(instance));
+   details.put("errorRate", state.errorRate);
+   details.put("meanLatencyMillis", state.meanLatency < 0 ? null
+    : state.meanLatency / 1_000_000D);
+   details.put("consecutiveFailures", state.consecutiveFailures.get());
+   summary.put(instance, details);
+  });
+  return summary;
+ }
+
+ void evaluate() {
+  try {
+   long now = System.nanoTime();
+   Map<String, List<Double>> latencies = new HashMap<>();
+   Map<String, Instance> judged = new LinkedHashMap<>();
+   this.instances.forEach((instance, state) -> {
+    long requests = state.requests.sumThenReset();
+    long failures = state.failures.sumThenReset();
+    long latency = state.latency.sumThenReset();
+    state.errorRate = requests == 0 ? 0 : failures / (double) requests;
+    state.meanLatency = requests == 0 ? -1 : latency / (double) requests;
+    if (requests >= this.properties.getMinRequests() && !state.isEjected(now)) {
+     judged.put(instance, state);
+     latencies.computeIfAbsent(state.service, s -> new ArrayList<>()).add(
+      state.meanLatency);
+    }
+   });
+   Map<String, Double> medians = new HashMap<>();
+   latencies.forEach((service, values) -> medians.put(service, median(values)));
+   long healthy = TimeUnit.MILLISECONDS.toNanos(this.properties
+    .getMaxEjectionTime());
+   synchronized (this) {
+    judged.forEach((instance, state) -> {
+     if (state.errorRate > this.properties.getMaxErrorRate()) {
+      this.eject(instance, state, "error rate " + state.errorRate);
+     }
+     else if (latencies.get(state.service).size() >= 3 && state.meanLatency
+      > medians.get(state.service) * this.properties.getLatencyFactor()) {
+      this.eject(instance, state, "latency " + state.meanLatency / 1_000_000D
+       + "ms");
+     }
+     else if (state.ejections > 0 && now - state.ejectedUntil > healthy) {
+      // healthy for a good while, so the next ejection is shorter again
+      state.ejections--;
+     }
+    });
+   }
+   this.prune(now);
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't evaluate outliers", e);
+  }
+ }
+
+ // caller holds the lock
+ private void eject(String instance, Instance state, String reason) {
+  long now = System.nanoTime();
+  long peers = 0, ejected = 0;
+  for (Instance peer : this.instances.values()) {
+   if (peer.service.equals(state.service)) {
+    peers++;
+    ejected += peer.isEjected(now) ? 1 : 0;
+   }
+  }
+  if ((ejected + 1) * 100 > peers * this.properties.getMaxEjectionPercent()) {
+   this.log.warn("not ejecting " + instance + " (" + reason + "), already "
+    + ejected + " of " + peers + " " + state.service + " instances ejected");
+   return;
+  }
+  state.ejections++;
+  long millis = Math.min(this.properties.getBaseEjectionTime()
+   << Math.min(state.ejections - 1, 20), this.properties.getMaxEjectionTime());
+  state.ejectedUntil = now + TimeUnit.MILLISECONDS.toNanos(millis);
+  state.consecutiveFailures.set(0);
+  this.log.info("ejected " + state.service + " at " + instance + " for "
+   + millis + "ms: " + reason);
+ }
+
+ // forget instances that have had no traffic for a while
+ private void prune(long now) {
+  long idle = TimeUnit.MILLISECONDS.toNanos(this.properties.getInterval() * 10);
+  this.instances.entrySet().removeIf(
+   e -> now - e.getValue().lastSeen > idle && !e.getValue().isEjected(now));
+ }
+
+ private static double median(List<Double> values) {
+  if (values.isEmpty()) {
+   return 0;
+  }
+  Collections.sort(values);
+  int middle = values.size() / 2;
+  return values.size() % 2 == 1 ? values.get(middle)
+   : (values.get(middle - 1) + values.get(middle)) / 2;
+ }
+
+ private static class Instance {
+
+  private final String service;
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder failures = new LongAdder();
+
+  private final LongAdder latency = new LongAdder();
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  private volatile long lastSeen = System.nanoTime();
+
+  private volatile long ejectedUntil;
+
+  private volatile int ejections;
+
+  private volatile double errorRate;
+
+  private volatile double meanLatency = -1;
+
+  Instance(String service) {
+   this.service = service;
+  }
+
+  boolean isEjected(long now) {
+   return this.ejectedUntil != 0 && now - this.ejectedUntil < 0;
+  }
+ }
+}
@@ -0,0 +1,19 @@
+package greetings;
+
+import com.netflix.loadbalancer.IRule;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+
+// applied to every Ribbon client's own context by LoadBalancingConfiguration.
+// deliberately not a @Configuration, so component scanning doesn't pick it
+// up and apply it to the application context as well.
+class PeakEwmaRibbonConfiguration {
+
+ @Bean
+ IRule ribbonRule(LoadBalancingProperties properties,
+  ObjectProvider<OutlierDetector> outlierDetector,
+  ObjectProvider<SlowStart> slowStart) {
+  return new PeakEwmaRule(properties, outlierDetector.getIfAvailable(),
+   slowStart.getIfAvailable());
+ }
+}
@@ -0,0 +1,171 @@
+package greetings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancer;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.LoadBalancerStats;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// power of two choices over a peak-sensitive moving average of latency: pick
+// two instances at random and send the request to the one with the lower
+// latency * (in-flight + 1). an instance that gets slow is avoided right
+// away, and forgiven only gradually. instances ejected by the outlier
+// detector are left out, and returning or newly started ones get a reduced
+// share.
+class PeakEwmaRule extends AbstractLoadBalancerRule {
+
+ private final Cache<String, PeakEwma> latencies = CacheBuilder.newBuilder()
+  .expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+ private final double decayNanos;
+
+ private final double defaultLatency;
+
+ private final OutlierDetector outlierDetector;
+
+ private final SlowStart slowStart;
+
+ PeakEwmaRule(LoadBalancingProperties properties,
+  OutlierDetector outlierDetector, SlowStart slowStart) {
+  this.decayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getDecayTime());
+  this.defaultLatency = properties.getDefaultLatency();
+  this.outlierDetector = outlierDetector;
+  this.slowStart = slowStart;
+ }
+
+ @Override
+ public void initWithNiwsConfig(IClientConfig clientConfig) {
+ }
+
+ @Override
+ public Server choose(Object key) {
+  ILoadBalancer loadBalancer = this.getLoadBalancer();
+  if (loadBalancer == null) {
+   return null;
+  }
+  List<Server> servers = this.eligible(loadBalancer.getReachableServers());
+  if (servers.isEmpty()) {
+   return null;
+  }
+  Server chosen = servers.get(0);
+  if (servers.size() > 1) {
+   ThreadLocalRandom random = ThreadLocalRandom.current();
+   int a = random.nextInt(servers.size());
+   int b = random.nextInt(servers.size() - 1);
+   if (b >= a) {
+    b++;
+   }
+   Server first = servers.get(a), second = servers.get(b);
+   chosen = this.cost(first) <= this.cost(second) ? first : second;
+  }
+  // for the outlier and latency post filters, when inside a Zuul request
+  OutlierDetectionPostFilter.chosen(chosen);
+  return chosen;
+ }
+
+ // if everything is ejected, ejecting nothing is the lesser evil
+ private List<Server> eligible(List<Server> servers) {
+  if (this.outlierDetector == null) {
+   return servers;
+  }
+  List<Server> eligible = new ArrayList<>(servers.size());
+  for (Server server : servers) {
+   if (!this.outlierDetector.isEjected(key(server))) {
+    eligible.add(server);
+   }
+  }
+  return eligible.isEmpty() ? servers : eligible;
+ }
+
+ private double weight(Server server) {
+  double weight = 1;
+  if (this.outlierDetector != null) {
+   weight *= this.outlierDetector.weight(key(server));
+  }
+  if (this.slowStart != null) {
+   weight *= this.slowStart.weight(key(server));
+  }
+  return Math.max(weight, 0.01);
+ }
+
+ private static String key(Server server) {
+  return OutlierDetector.key(server.getHost(), server.getPort());
+ }
+
+ double cost(Server server) {
+  ServerStats stats = this.statsFor(server);
+  if (stats == null) {
+   return this.defaultLatency / this.weight(server);
+  }
+  long now = System.currentTimeMillis();
+  if (stats.isCircuitBreakerTripped(now)) {
+   return Double.MAX_VALUE;
+  }
+  PeakEwma latency = this.latencies.getIfPresent(server.getId());
+  if (latency == null) {
+   latency = this.latencies.asMap().computeIfAbsent(server.getId(),
+    id -> new PeakEwma());
+  }
+  return latency.update(stats) * (stats.getActiveRequestsCount(now) + 1)
+   / this.weight(server);
+ }
+
+ private ServerStats statsFor(Server server) {
+  ILoadBalancer loadBalancer = this.getLoadBalancer();
+  if (!(loadBalancer instanceof AbstractLoadBalancer)) {
+   return null;
+  }
+  LoadBalancerStats stats = ((AbstractLoadBalancer) loadBalancer)
+   .getLoadBalancerStats();
+  return stats == null ? null : stats.getSingleServerStat(server);
+ }
+
+ // Ribbon's ServerStats already see every completed call, from the
+ // RestTemplate, Feign and Zuul alike. the latency of the calls completed
+ // since we last looked is worked out from the running count and mean.
+ private class PeakEwma {
+
+  private double ewma = -1;
+
+  private long count;
+
+  private double sum;
+
+  private long stamp = System.nanoTime();
+
+  synchronized double update(ServerStats stats) {
+   long n = stats.getTotalRequestsCount();
+   if (n > this.count) {
+    double total = stats.getResponseTimeAvg() * n;
+    double sample = Math.max(0, (total - this.sum) / (n - this.count));
+    long now = System.nanoTime();
+    if (this.ewma < 0 || sample > this.ewma) {
+     // peaks count at once
+     this.ewma = sample;
+    }
+    else {
+     double w = Math.exp(-(now - this.stamp) / decayNanos);
+     this.ewma = this.ewma * w + sample * (1 - w);
+    }
+    this.stamp = now;
+    this.count = n;
+    this.sum = total;
+   }
+   else if (n < this.count) {
+    // stats were reset
+    this.count = n;
+    this.sum = stats.getResponseTimeAvg() * n;
+   }
+   return this.ewma < 0 ? defaultLatency : this.ewma;
+  }
+ }
+}
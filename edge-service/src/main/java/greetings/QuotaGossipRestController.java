@@ -0,0 +1,48 @@
+package greetings;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// registered by ThrottlingConfiguration only when gossip is enabled, so it
+// deliberately carries no stereotype annotation. this sits on the public
+// port, so reports are only taken from callers holding the cluster secret
+// and claiming to be an instance the registry knows about: anybody else
+// could shrink our share of the quota with invented demand.
+@ResponseBody
+@RequestMapping("/throttling")
+class QuotaGossipRestController {
+
+ static final String SECRET_HEADER = "X-Quota-Secret";
+
+ private final GossipQuotaStore quotaStore;
+
+ private final byte[] secret;
+
+ QuotaGossipRestController(GossipQuotaStore quotaStore, String secret) {
+  this.quotaStore = quotaStore;
+  this.secret = secret.getBytes(StandardCharsets.UTF_8);
+ }
+
+ @PostMapping("/quota")
+ ResponseEntity<Void> quota(
+  @RequestHeader(name = SECRET_HEADER, required = false) String secret,
+  @RequestBody QuotaReport report) {
+  if (secret == null || !MessageDigest.isEqual(this.secret, secret
+   .getBytes(StandardCharsets.UTF_8))) {
+   return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+  }
+  if (!this.quotaStore.isPeer(report.getInstanceId())) {
+   return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+  }
+  this.quotaStore.accept(report);
+  return ResponseEntity.noContent().build();
+ }
+}
@@ -0,0 +1,17 @@
+package greetings;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class QuotaReport {
+
+ private String instanceId;
+
+ private Map<String, Long> demand;
+}
@@ -0,0 +1,11 @@
+package greetings;
+
+import java.util.Map;
+
+// where edge-service instances pool their throttling demand
+interface QuotaStore {
+
+ // records this instance's demand for the last sync window and returns the
+ // demand of the whole cluster (this instance included), per bucket key
+ Map<String, Long> exchange(String instanceId, Map<String, Long> demand);
+}
@@ -0,0 +1,79 @@
+package greetings;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// singleflight for idempotent downstream calls: while a call for a key is in
+// flight, callers asking for the same key wait for its result instead of
+// making their own. nothing is cached; the key is released as soon as the
+// leading call completes.
+class RequestCoalescer {
+
+ private final Map<String, CompletableFuture<Object>> inFlight =
+  new ConcurrentHashMap<>();
+
+ private final long timeout;
+
+ RequestCoalescer(long timeoutMillis) {
+  this.timeout = timeoutMillis;
+ }
+
+ @SuppressWarnings("unchecked")
+ <T> T execute(String key, Supplier<T> call) {
+  CompletableFuture<Object> mine = new CompletableFuture<>();
+  CompletableFuture<Object> leader = this.inFlight.putIfAbsent(key, mine);
+  if (leader == null) {
+   try {
+    T result = call.get();
+    mine.complete(result);
+    return result;
+   }
+   catch (RuntimeException e) {
+    mine.completeExceptionally(e);
+    throw e;
+   }
+   finally {
+    this.inFlight.remove(key, mine);
+   }
+  }
+  try {
+   return (T) leader.get(this.timeout, TimeUnit.MILLISECONDS);
+  }
+  catch (ExecutionException e) {
+   if (e.getCause() instanceof RuntimeException) {
+    throw (RuntimeException) e.getCause();
+   }
+   throw new IllegalStateException(e.getCause());
+  }
+  catch (TimeoutException e) {
+   // the leader is stuck; don't let it take us down with it
+   return call.get();
+  }
+  catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   throw new IllegalStateException(e);
+  }
+ }
+
+ // for callers that produce the result somewhere else (a Zuul post filter,
+ // say): returns null if the caller leads and must later complete() or
+ // abandon() the key, otherwise the future of the call that leads
+ CompletableFuture<Object> join(String key, CompletableFuture<Object> mine) {
+  return this.inFlight.putIfAbsent(key, mine);
+ }
+
+ void complete(String key, CompletableFuture<Object> mine, Object result) {
+  this.inFlight.remove(key, mine);
+  mine.complete(result);
+ }
+
+ void abandon(String key, CompletableFuture<Object> mine) {
+  this.inFlight.remove(key, mine);
+  mine.complete(null);
+ }
+
+ long getTimeout() {
+  return this.timeout;
+ }
+}
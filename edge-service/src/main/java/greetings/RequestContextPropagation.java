@@ -0,0 +1,70 @@
+package greetings;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2ClientContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import relay.TokenRelay;
+
+import java.util.concurrent.Callable;
+
+// carries what a pool thread needs from the calling request: the security
+// context, the route its latency is recorded under and, with the token
+// relay in place, the access token to relay.
+// the token is resolved here, on the request thread; the request's scope
+// itself is never handed over, since the task may well outlive it (a
+// DeferredResult returns the servlet thread long before the call is done).
+@Component
+class RequestContextPropagation {
+
+ private static final ThreadLocal<String> ROUTE = new ThreadLocal<>();
+
+ private final TokenRelay tokenRelay;
+
+ private final OAuth2ClientContext clientContext;
+
+ @Autowired
+ public RequestContextPropagation(ObjectProvider<TokenRelay> tokenRelay,
+  ObjectProvider<OAuth2ClientContext> clientContext) {
+  this.tokenRelay = tokenRelay.getIfAvailable();
+  this.clientContext = clientContext.getIfAvailable();
+ }
+
+ // the calling request's handler mapping pattern, e.g.
+ // /api/resttemplate/{name}, on its own thread or a pool thread working for it
+ static String route() {
+  String route = ROUTE.get();
+  if (route != null) {
+   return route;
+  }
+  RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+  Object pattern = attributes == null ? null : attributes.getAttribute(
+   HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+   RequestAttributes.SCOPE_REQUEST);
+  return pattern == null ? null : pattern.toString();
+ }
+
+ <T> Callable<T> wrap(Callable<T> task) {
+  SecurityContext securityContext = SecurityContextHolder.getContext();
+  String route = route();
+  Callable<T> relayed = this.tokenRelay != null && this.clientContext != null
+   && RequestContextHolder.getRequestAttributes() != null ? this.tokenRelay
+   .bind(this.clientContext, task) : task;
+  return () -> {
+   SecurityContextHolder.setContext(securityContext);
+   ROUTE.set(route);
+   try {
+    return relayed.call();
+   }
+   finally {
+    ROUTE.remove();
+    SecurityContextHolder.clearContext();
+   }
+  };
+ }
+}
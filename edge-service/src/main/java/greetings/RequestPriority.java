@@ -0,0 +1,34 @@
+package greetings;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+
+enum RequestPriority {
+
+ // /api/** calls whose token SecureResourceConfiguration has accepted
+ AUTHENTICATED,
+
+ // proxied Zuul routes such as /lets/**, and /api/** calls without a
+ // validated token
+ ANONYMOUS,
+
+ // the html5 app, webjars and everything else served locally
+ STATIC;
+
+ private static final PathMatcher pathMatcher = new AntPathMatcher();
+
+ static RequestPriority classify(HttpServletRequest request, String path) {
+  // only a principal counts: anybody can send an Authorization header.
+  // the security chain has run by now and set one if the token was good.
+  if (pathMatcher.match("/api/**", path)) {
+   return request.getUserPrincipal() != null ? AUTHENTICATED : ANONYMOUS;
+  }
+  if (path.equals("/") || pathMatcher.match("/webjars/**", path)
+   || path.lastIndexOf('.') > path.lastIndexOf('/')) {
+   return STATIC;
+  }
+  return ANONYMOUS;
+ }
+}
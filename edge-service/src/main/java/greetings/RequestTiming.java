@@ -0,0 +1,28 @@
+package greetings;
+
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+
+abstract class RequestTiming {
+
+ // the Cloud Foundry router stamps every request with the epoch millis at
+ // which it received it; the difference to now is time spent queueing
+ static final String REQUEST_START_HEADER = "x-request-start";
+
+ // milliseconds between the router receiving the request and now, or 0 if
+ // no router told us
+ static long queueWaitMillis(HttpServletRequest request) {
+  String requestStart = request.getHeader(REQUEST_START_HEADER);
+  if (!StringUtils.hasText(requestStart)) {
+   return 0;
+  }
+  try {
+   return Math.max(0,
+    System.currentTimeMillis() - Long.parseLong(requestStart));
+  }
+  catch (NumberFormatException e) {
+   return 0;
+  }
+ }
+}
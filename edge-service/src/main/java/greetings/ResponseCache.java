@@ -0,0 +1,146 @@
+package greetings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.util.Pair;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Profile("caching")
+@Component
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+class ResponseCache implements PublicMetrics {
+
+ private final ResponseCacheProperties properties;
+
+ private final Cache<String, CachedResponse> responses;
+
+ private final LongAdder hits = new LongAdder();
+
+ private final LongAdder misses = new LongAdder();
+
+ @Autowired
+ public ResponseCache(ResponseCacheProperties properties) {
+  this.properties = properties;
+  this.responses = CacheBuilder.newBuilder()
+   .maximumWeight(properties.getMaxBytes())
+   .<String, CachedResponse> weigher(
+    (key, response) -> key.length() * 2 + response.getBody().length)
+   .expireAfterWrite(properties.getMaxTtl(), TimeUnit.MILLISECONDS).build();
+ }
+
+ boolean isCached(String routeId) {
+  return routeId != null && this.properties.getRoutes().containsKey(routeId);
+ }
+
+ String keyFor(RequestContext context) {
+  HttpServletRequest request = context.getRequest();
+  StringBuilder key = new StringBuilder().append(context.get("proxy"))
+   .append(' ').append(request.getRequestURI());
+  if (request.getQueryString() != null) {
+   key.append('?').append(request.getQueryString());
+  }
+  for (String header : this.properties.getKeyHeaders()) {
+   key.append('|').append(request.getHeader(header));
+  }
+  if (this.properties.isKeyPrincipal()) {
+   Principal principal = request.getUserPrincipal();
+   key.append('|').append(principal == null ? "" : principal.getName());
+  }
+  return key.toString();
+ }
+
+ CachedResponse get(String key) {
+  CachedResponse response = this.responses.getIfPresent(key);
+  if (response != null && response.isExpired(System.currentTimeMillis())) {
+   this.responses.invalidate(key);
+   response = null;
+  }
+  (response == null ? this.misses : this.hits).increment();
+  return response;
+ }
+
+ void put(String key, String routeId, int status,
+  List<Pair<String, String>> headers, byte[] body, boolean gzipped) {
+  // a response that varies on a header we don't key on can't be shared
+  if (SharedResponseHeaders.variesBeyond(headers,
+   this.properties.getKeyHeaders())) {
+   return;
+  }
+  long ttl = this.ttlFor(routeId, headers);
+  if (ttl > 0 && body.length <= this.properties.getMaxEntryBytes()) {
+   this.responses.put(key, new CachedResponse(status,
+    SharedResponseHeaders.of(headers), body, gzipped,
+    System.currentTimeMillis() + ttl));
+  }
+ }
+
+ long getMaxEntryBytes() {
+  return this.properties.getMaxEntryBytes();
+ }
+
+ // downstream's Cache-Control wins over the route default, capped by maxTtl
+ private long ttlFor(String routeId, List<Pair<String, String>> headers) {
+  long ttl = this.properties.getRoutes().getOrDefault(routeId, 0L);
+  for (Pair<String, String> header : headers) {
+   if (HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(header.first())) {
+    ttl = ttlFor(header.second(), ttl);
+   }
+  }
+  return Math.min(ttl, this.properties.getMaxTtl());
+ }
+
+ private static long ttlFor(String cacheControl, long defaultTtl) {
+  long maxAge = -1;
+  long sharedMaxAge = -1;
+  for (String directive : StringUtils
+   .commaDelimitedListToStringArray(cacheControl)) {
+   String d = directive.trim().toLowerCase(Locale.ROOT);
+   if (d.equals("no-store") || d.equals("no-cache") || d.equals("private")) {
+    return 0;
+   }
+   if (d.startsWith("s-maxage=")) {
+    sharedMaxAge = seconds(d.substring("s-maxage=".length()));
+   }
+   else if (d.startsWith("max-age=")) {
+    maxAge = seconds(d.substring("max-age=".length()));
+   }
+  }
+  long seconds = sharedMaxAge >= 0 ? sharedMaxAge : maxAge;
+  return seconds >= 0 ? TimeUnit.SECONDS.toMillis(seconds) : defaultTtl;
+ }
+
+ private static long seconds(String value) {
+  try {
+   return Long.parseLong(value.trim());
+  }
+  catch (NumberFormatException e) {
+   return 0;
+  }
+ }
+
+ @Override
+ public Collection<Metric<?>> metrics() {
+  Collection<Metric<?>> metrics = new ArrayList<>();
+  metrics.add(new Metric<>("responsecache.hits", this.hits.sum()));
+  metrics.add(new Metric<>("responsecache.misses", this.misses.sum()));
+  metrics.add(new Metric<>("responsecache.entries", this.responses.size()));
+  return metrics;
+ }
+}
@@ -0,0 +1,93 @@
+package greetings;
+
+import com.netflix.util.Pair;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// buffers successful responses for cache misses and stores them before
+// SendResponseFilter writes them out
+@Profile("caching")
+@Component
+class ResponseCachePostFilter extends ZuulFilter {
+
+ private final ResponseCache responseCache;
+
+ @Autowired
+ public ResponseCachePostFilter(ResponseCache responseCache) {
+  this.responseCache = responseCache;
+ }
+
+ @Override
+ public String filterType() {
+  return "post";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 900;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.containsKey(ResponseCachePreFilter.CACHE_KEY)
+   && context.getThrowable() == null
+   && context.getResponseStatusCode() == 200;
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  String key = (String) context.remove(ResponseCachePreFilter.CACHE_KEY);
+  try {
+   byte[] body = this.buffer(context);
+   if (body != null) {
+    List<Pair<String, String>> headers = new ArrayList<>(
+     context.getZuulResponseHeaders());
+    this.responseCache.put(key, (String) context.get("proxy"),
+     context.getResponseStatusCode(), headers, body,
+     context.getResponseGZipped());
+   }
+  }
+  catch (IOException e) {
+   context.setThrowable(e);
+  }
+  return null;
+ }
+
+ // reads at most maxEntryBytes + 1 bytes; anything bigger is stitched back
+ // together and streamed as it would have been without the cache
+ private byte[] buffer(RequestContext context) throws IOException {
+  if (context.getResponseBody() != null) {
+   return context.getResponseBody().getBytes(StandardCharsets.UTF_8);
+  }
+  InputStream stream = context.getResponseDataStream();
+  if (stream == null) {
+   return new byte[0];
+  }
+  long limit = this.responseCache.getMaxEntryBytes() + 1;
+  ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  StreamUtils.copyRange(stream, buffer, 0, limit - 1);
+  byte[] bytes = buffer.toByteArray();
+  if (bytes.length >= limit) {
+   context.setResponseDataStream(new SequenceInputStream(
+    new ByteArrayInputStream(bytes), stream));
+   return null;
+  }
+  context.setResponseDataStream(new ByteArrayInputStream(bytes));
+  return bytes;
+ }
+}
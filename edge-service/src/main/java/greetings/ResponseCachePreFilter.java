@@ -0,0 +1,63 @@
+package greetings;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+
+// serves GETs on cached routes straight from ResponseCache. a hit is handed
+// to SendResponseFilter like any downstream response, but the route filters
+// (and Ribbon) never run.
+@Profile("caching")
+@Component
+class ResponseCachePreFilter extends ZuulFilter {
+
+ static final String CACHE_KEY = "responseCacheKey";
+
+ private final ResponseCache responseCache;
+
+ @Autowired
+ public ResponseCachePreFilter(ResponseCache responseCache) {
+  this.responseCache = responseCache;
+ }
+
+ @Override
+ public String filterType() {
+  return "pre";
+ }
+
+ @Override
+ public int filterOrder() {
+  return 7;
+ }
+
+ @Override
+ public boolean shouldFilter() {
+  RequestContext context = RequestContext.getCurrentContext();
+  return context.sendZuulResponse()
+   && HttpMethod.GET.matches(context.getRequest().getMethod())
+   && this.responseCache.isCached((String) context.get("proxy"));
+ }
+
+ @Override
+ public Object run() {
+  RequestContext context = RequestContext.getCurrentContext();
+  String key = this.responseCache.keyFor(context);
+  CachedResponse cached = this.responseCache.get(key);
+  if (cached == null) {
+   context.set(CACHE_KEY, key);
+   return null;
+  }
+  context.setSendZuulResponse(false);
+  context.setResponseStatusCode(cached.getStatus());
+  cached.getHeaders().forEach(
+   h -> context.addZuulResponseHeader(h.first(), h.second()));
+  context.setResponseGZipped(cached.isGzipped());
+  context.setResponseDataStream(new ByteArrayInputStream(cached.getBody()));
+  return null;
+ }
+}
@@ -0,0 +1,33 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("response-cache")
+class ResponseCacheProperties {
+
+ // total size of the cached bodies
+ private long maxBytes = 64 * 1024 * 1024;
+
+ // larger responses are passed through uncached
+ private long maxEntryBytes = 1024 * 1024;
+
+ // ceiling on how long anything is kept, whatever downstream says (ms)
+ private long maxTtl = 10 * 60 * 1000;
+
+ // request headers whose values are part of the cache key
+ private List<String> keyHeaders = new ArrayList<>();
+
+ // whether every principal gets their own copy
+ private boolean keyPrincipal = true;
+
+ // Zuul route id -> ttl (ms) used when downstream sends no Cache-Control.
+ // only routes listed here are cached.
+ private Map<String, Long> routes = new HashMap<>();
+}
@@ -1,5 +1,6 @@
 package greetings;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Profile;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Profile({ "default", "insecure" })
 @RestController
@@ -18,14 +20,34 @@ class RestTemplateGreetingsClientApiGateway {
 
  private final RestTemplate restTemplate;
 
+ private final RequestCoalescer coalescer;
+
+ private final Hedger hedger;
+
  @Autowired
  RestTemplateGreetingsClientApiGateway(
-   @LoadBalanced RestTemplate restTemplate) { // <1>
+   @LoadBalanced RestTemplate restTemplate, // <1>
+   ObjectProvider<RequestCoalescer> coalescer,
+   ObjectProvider<Hedger> hedger) {
   this.restTemplate = restTemplate;
+  this.coalescer = coalescer.getIfAvailable();
+  this.hedger = hedger.getIfAvailable();
  }
 
  @GetMapping("/resttemplate/{name}")
  Map<String, String> restTemplate(@PathVariable String name) {
+  Supplier<Map<String, String>> call = this.hedged() ? () -> this.hedger
+   .execute("greetings-service", () -> this.greet(name)) : () -> this
+   .greet(name);
+  return this.coalescer == null ? call.get() : this.coalescer.execute(
+   "resttemplate " + name, call);
+ }
+
+ private boolean hedged() {
+  return this.hedger != null && this.hedger.isHedged("greetings-service");
+ }
+
+ private Map<String, String> greet(String name) {
 
   //@formatter:off
   ParameterizedTypeReference<Map<String, String>> type =
@@ -0,0 +1,49 @@
+package greetings;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// a ring of Histograms, one per window. recording touches only the current
+// window's histogram; a snapshot merges the windows still in range. a window
+// is reused, not reallocated, when its turn comes round again, and may lose
+// a handful of samples racing that reset, which is the price of never taking
+// a lock.
+final class RollingHistogram {
+
+ private final Histogram[] histograms;
+
+ private final AtomicLongArray epochs;
+
+ private final long windowNanos;
+
+ RollingHistogram(long windowMillis, int windows) {
+  this.histograms = new Histogram[windows];
+  this.epochs = new AtomicLongArray(windows);
+  this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+  for (int i = 0; i < windows; i++) {
+   this.histograms[i] = new Histogram();
+   this.epochs.set(i, -1);
+  }
+ }
+
+ void record(long value) {
+  long epoch = System.nanoTime() / this.windowNanos;
+  int i = (int) Math.floorMod(epoch, (long) this.histograms.length);
+  long seen = this.epochs.get(i);
+  if (seen != epoch && this.epochs.compareAndSet(i, seen, epoch)) {
+   this.histograms[i].reset();
+  }
+  this.histograms[i].record(value);
+ }
+
+ Histogram snapshot() {
+  long epoch = System.nanoTime() / this.windowNanos;
+  Histogram merged = new Histogram();
+  for (int i = 0; i < this.histograms.length; i++) {
+   if (epoch - this.epochs.get(i) < this.histograms.length) {
+    this.histograms[i].addTo(merged);
+   }
+  }
+  return merged;
+ }
+}
@@ -3,41 +3,63 @@ package greetings;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
 import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
+import org.springframework.cloud.netflix.zuul.filters.Route;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Component
 class RoutesListener {
 
  private final RouteLocator routeLocator;
 
- private final DiscoveryClient discoveryClient;
-
  private Log log = LogFactory.getLog(getClass());
 
+ private Map<String, String> routes = Collections.emptyMap();
+
  @Autowired
- public RoutesListener(DiscoveryClient dc, RouteLocator rl) {
+ public RoutesListener(RouteLocator rl) {
   this.routeLocator = rl;
-  this.discoveryClient = dc;
  }
 
  // <1>
- @EventListener(HeartbeatEvent.class)
- public void onHeartbeatEvent(HeartbeatEvent event) {
-  this.log.info("onHeartbeatEvent()");
-  this.discoveryClient.getServices().stream().map(x -> " " + x)
-   .forEach(this.log::info);
+ @EventListener(DiscoveryCatalogChangedEvent.class)
+ public void onDiscoveryCatalogChangedEvent(DiscoveryCatalogChangedEvent event) {
+  this.log.info("onDiscoveryCatalogChangedEvent()");
+  event.getAddedServices().forEach(x -> this.log.info(" + " + x));
+  event.getRemovedServices().forEach(x -> this.log.info(" - " + x));
+  event.getChangedServices().forEach(x -> this.log.info(" ~ " + x));
  }
 
  // <2>
  @EventListener(RoutesRefreshedEvent.class)
- public void onRoutesRefreshedEvent(RoutesRefreshedEvent event) {
+ public synchronized void onRoutesRefreshedEvent(RoutesRefreshedEvent event) {
+  Map<String, String> current = new LinkedHashMap<>();
+  for (Route route : this.routeLocator.getRoutes()) {
+   current.put(route.getId(), route.getFullPath() + " -> "
+    + route.getLocation());
+  }
+  Map<String, String> previous = this.routes;
+  this.routes = current;
+  if (current.equals(previous)) {
+   // refreshed on every heartbeat, changed hardly ever
+   return;
+  }
   this.log.info("onRoutesRefreshedEvent()");
-  this.routeLocator.getRoutes().stream().map(x -> " " + x)
-   .forEach(this.log::info);
+  current.forEach((id, route) -> {
+   if (!previous.containsKey(id)) {
+    this.log.info(" + " + id + " " + route);
+   }
+   else if (!previous.get(id).equals(route)) {
+    this.log.info(" ~ " + id + " " + route);
+   }
+  });
+  previous.keySet().stream().filter(id -> !current.containsKey(id))
+   .forEach(id -> this.log.info(" - " + id));
  }
 }
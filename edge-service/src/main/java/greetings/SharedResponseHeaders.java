@@ -0,0 +1,66 @@
+package greetings;
+
+import com.netflix.util.Pair;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+// what of a downstream response may be replayed to other callers: never
+// cookies, and never hop-by-hop headers, which described the connection to
+// the one caller that got them
+abstract class SharedResponseHeaders {
+
+ private static final Set<String> NEVER_SHARED = lowerCase(Arrays.asList(
+  HttpHeaders.SET_COOKIE, "Set-Cookie2", HttpHeaders.CONNECTION, "Keep-Alive",
+  HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+  HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING,
+  HttpHeaders.UPGRADE));
+
+ static List<Pair<String, String>> of(List<Pair<String, String>> headers) {
+  // anything a Connection header names is hop-by-hop as well
+  Set<String> dropped = new TreeSet<>(NEVER_SHARED);
+  for (Pair<String, String> header : headers) {
+   if (HttpHeaders.CONNECTION.equalsIgnoreCase(header.first())) {
+    dropped.addAll(lowerCase(Arrays.asList(StringUtils
+     .tokenizeToStringArray(header.second(), ","))));
+   }
+  }
+  List<Pair<String, String>> shared = new ArrayList<>();
+  for (Pair<String, String> header : headers) {
+   if (!dropped.contains(header.first().toLowerCase(Locale.ROOT))) {
+    shared.add(header);
+   }
+  }
+  return shared;
+ }
+
+ // true if the response varies on something other than the given request
+ // headers, i.e. serving it to a caller that differs there would be wrong
+ static boolean variesBeyond(List<Pair<String, String>> headers,
+  Collection<String> keyHeaders) {
+  Set<String> keyed = lowerCase(keyHeaders);
+  for (Pair<String, String> header : headers) {
+   if (HttpHeaders.VARY.equalsIgnoreCase(header.first())) {
+    for (String name : StringUtils.tokenizeToStringArray(header.second(), ",")) {
+     if (name.equals("*") || !keyed.contains(name.toLowerCase(Locale.ROOT))) {
+      return true;
+     }
+    }
+   }
+  }
+  return false;
+ }
+
+ private static Set<String> lowerCase(Collection<String> names) {
+  Set<String> lowerCase = new TreeSet<>();
+  names.forEach(n -> lowerCase.add(n.trim().toLowerCase(Locale.ROOT)));
+  return lowerCase;
+ }
+}
@@ -0,0 +1,178 @@
+package greetings;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import relay.HttpClientProperties;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// instances that show up after we started are cold: no JIT, empty pools.
+// before they get traffic we open pooled connections to them (and send a
+// few warm-up requests if asked to), then the load-balancing rule ramps
+// their share up over a window instead of handing them everything at once.
+@Profile("slow-start")
+@Component
+@EnableConfigurationProperties(SlowStartProperties.class)
+class SlowStart {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final Map<String, Long> starts = new ConcurrentHashMap<>();
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "slow-start");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ private final SlowStartProperties properties;
+
+ private final HttpClientProperties httpClientProperties;
+
+ private final PoolingHttpClientConnectionManager connectionManager;
+
+ private final CloseableHttpClient httpClient;
+
+ private final String serviceId;
+
+ @Autowired
+ public SlowStart(SlowStartProperties properties,
+  HttpClientProperties httpClientProperties,
+  PoolingHttpClientConnectionManager connectionManager,
+  CloseableHttpClient httpClient,
+  @Value("${spring.application.name}") String serviceId) {
+  this.properties = properties;
+  this.httpClientProperties = httpClientProperties;
+  this.connectionManager = connectionManager;
+  this.httpClient = httpClient;
+  this.serviceId = serviceId;
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ @EventListener(DiscoveryCatalogChangedEvent.class)
+ public void onDiscoveryCatalogChangedEvent(DiscoveryCatalogChangedEvent e) {
+  for (ServiceInstance si : e.getAddedInstances()) {
+   if (this.applies(si.getServiceId())) {
+    this.starts.put(DiscoverySnapshot.address(si), System.nanoTime());
+    this.scheduler.execute(() -> this.warm(si));
+   }
+  }
+ }
+
+ // share of traffic an instance should get, from minWeight up to 1
+ double weight(String instance) {
+  Long start = this.starts.get(instance);
+  if (start == null) {
+   return 1;
+  }
+  long window = TimeUnit.MILLISECONDS.toNanos(this.properties.getWindow());
+  long elapsed = System.nanoTime() - start;
+  if (elapsed >= window) {
+   this.starts.remove(instance, start);
+   return 1;
+  }
+  return Math.max(this.properties.getMinWeight(), elapsed / (double) window);
+ }
+
+ private boolean applies(String service) {
+  if (service.equalsIgnoreCase(this.serviceId)) {
+   return false;
+  }
+  List<String> services = this.properties.getServices();
+  return services.isEmpty() || services.stream().anyMatch(
+   service::equalsIgnoreCase);
+ }
+
+ private void warm(ServiceInstance si) {
+  String instance = DiscoverySnapshot.address(si);
+  try {
+   int opened = this.openConnections(si);
+   int requests = this.sendWarmupRequests(si);
+   this.log.info("warmed up " + si.getServiceId() + " at " + instance + ": "
+    + opened + " connection(s), " + requests + " request(s)");
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't warm up " + si.getServiceId() + " at " + instance,
+    e);
+  }
+ }
+
+ // connections are held until all are open, so each one is a new one, then
+ // handed to the pool as reusable
+ private int openConnections(ServiceInstance si) throws Exception {
+  // keyed as HttpClient's route planner keys it, or real calls won't find
+  // these connections in the pool
+  HttpRoute route = new HttpRoute(new HttpHost(si.getHost(), si.getPort(),
+   si.isSecure() ? "https" : "http"), null, si.isSecure());
+  int count = Math.min(this.properties.getConnections(),
+   this.httpClientProperties.getMaxPerRoute());
+  List<HttpClientConnection> connections = new ArrayList<>(count);
+  try {
+   for (int i = 0; i < count; i++) {
+    ConnectionRequest request = this.connectionManager.requestConnection(
+     route, null);
+    HttpClientConnection connection = request.get(
+     this.httpClientProperties.getConnectionRequestTimeout(),
+     TimeUnit.MILLISECONDS);
+    connections.add(connection);
+    if (!connection.isOpen()) {
+     HttpClientContext context = HttpClientContext.create();
+     this.connectionManager.connect(connection, route,
+      this.httpClientProperties.getConnectTimeout(), context);
+     this.connectionManager.routeComplete(connection, route, context);
+    }
+   }
+  }
+  finally {
+   connections.forEach(connection -> this.connectionManager.releaseConnection(
+    connection, null, this.httpClientProperties.getKeepAlive(),
+    TimeUnit.MILLISECONDS));
+  }
+  return connections.size();
+ }
+
+ private int sendWarmupRequests(ServiceInstance si) throws Exception {
+  String path = this.properties.getWarmupPath();
+  if (!StringUtils.hasText(path)) {
+   return 0;
+  }
+  int sent = 0;
+  for (; sent < this.properties.getWarmupRequests(); sent++) {
+   try (CloseableHttpResponse response = this.httpClient.execute(new HttpGet(
+    si.getUri() + path))) {
+    EntityUtils.consume(response.getEntity());
+   }
+  }
+  return sent;
+ }
+}
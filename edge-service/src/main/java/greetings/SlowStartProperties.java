@@ -0,0 +1,29 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("slow-start")
+class SlowStartProperties {
+
+ // services whose new instances are eased in. empty means all of them
+ private List<String> services = new ArrayList<>();
+
+ // a new instance reaches its full share after this long (ms) ...
+ private long window = 30_000;
+
+ // ... starting from this share of it
+ private double minWeight = 0.1;
+
+ // pooled connections opened to a new instance before it gets traffic
+ private int connections = 4;
+
+ // optional GETs sent to a new instance to warm it up, e.g. /greet/warmup
+ private String warmupPath;
+
+ private int warmupRequests = 0;
+}
@@ -0,0 +1,68 @@
+package greetings;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+
+// what a request is counted against. callers that can't be identified fall
+// back to their remote address rather than sharing one anonymous bucket.
+enum ThrottleKey {
+
+ GLOBAL {
+
+  @Override
+  String resolve(HttpServletRequest request, String routeId,
+   ClientAddressResolver addresses) {
+   return "";
+  }
+ },
+
+ ROUTE {
+
+  @Override
+  String resolve(HttpServletRequest request, String routeId,
+   ClientAddressResolver addresses) {
+   return routeId == null ? "" : routeId;
+  }
+ },
+
+ IP {
+
+  @Override
+  String resolve(HttpServletRequest request, String routeId,
+   ClientAddressResolver addresses) {
+   return addresses.resolve(request);
+  }
+ },
+
+ PRINCIPAL {
+
+  @Override
+  String resolve(HttpServletRequest request, String routeId,
+   ClientAddressResolver addresses) {
+   Principal principal = request.getUserPrincipal();
+   return principal != null ? principal.getName() : addresses.resolve(request);
+  }
+ },
+
+ CLIENT {
+
+  @Override
+  String resolve(HttpServletRequest request, String routeId,
+   ClientAddressResolver addresses) {
+   Authentication authentication = SecurityContextHolder.getContext()
+    .getAuthentication();
+   if (authentication instanceof OAuth2Authentication) {
+    return OAuth2Authentication.class.cast(authentication).getOAuth2Request()
+     .getClientId();
+   }
+   return addresses.resolve(request);
+  }
+ };
+
+ abstract String resolve(HttpServletRequest request, String routeId,
+  ClientAddressResolver addresses);
+}
@@ -1,16 +1,107 @@
 package greetings;
 
-import com.google.common.util.concurrent.RateLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Profile("throttled")
 @Configuration
+@EnableConfigurationProperties(ThrottlingProperties.class)
 class ThrottlingConfiguration {
 
  @Bean //<1>
- RateLimiter rateLimiter() {
-  return RateLimiter.create(1.0D / 10.0D);
+ KeyedRateLimiter rateLimiter(ThrottlingProperties properties) {
+  return new KeyedRateLimiter(properties.getMaxKeys(),
+   properties.getIdleTimeout());
+ }
+
+ @Bean
+ ClientAddressResolver clientAddressResolver(ThrottlingProperties properties) {
+  return new ClientAddressResolver(properties.getTrustedProxies());
+ }
+
+ @Bean
+ ThrottlingMetrics throttlingMetrics(ThrottlingProperties properties) {
+  return new ThrottlingMetrics(properties.getMetricsMaxRoutes());
+ }
+
+ @Bean
+ ThrottlingEndpoint throttlingEndpoint(ThrottlingMetrics throttlingMetrics) {
+  return new ThrottlingEndpoint(throttlingMetrics);
+ }
+
+ @Configuration
+ @ConditionalOnProperty("throttling.cluster.enabled")
+ static class ClusterThrottlingConfiguration {
+
+  @Bean(destroyMethod = "shutdownNow")
+  ExecutorService quotaGossipExecutor(ThrottlingProperties properties) {
+   AtomicInteger threads = new AtomicInteger();
+   int size = properties.getCluster().getGossipThreads();
+   // one slot per peer at most is ever in flight, so a small queue will do
+   return new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+    new ArrayBlockingQueue<>(size * 16), runnable -> {
+     Thread thread = new Thread(runnable, "quota-gossip-"
+      + threads.incrementAndGet());
+     thread.setDaemon(true);
+     return thread;
+    });
+  }
+
+  @Bean
+  QuotaStore quotaStore(ThrottlingProperties properties,
+   DiscoveryCatalog discoveryCatalog,
+   @Qualifier("quotaGossipExecutor") ExecutorService quotaGossipExecutor,
+   @Value("${spring.application.name}") String serviceId) {
+   ThrottlingProperties.Cluster cluster = properties.getCluster();
+   long ttl = cluster.getSyncInterval() * 3;
+   if (cluster.getStore() == ThrottlingProperties.Cluster.Store.MEMORY) {
+    return new InMemoryQuotaStore(ttl);
+   }
+   Assert.hasText(cluster.getSecret(),
+    "throttling.cluster.secret is required with the gossip store");
+   // a plain, short-fused client: peers are addressed directly, not
+   // through the load balancer
+   SimpleClientHttpRequestFactory requestFactory =
+    new SimpleClientHttpRequestFactory();
+   requestFactory.setConnectTimeout((int) cluster.getTimeout());
+   requestFactory.setReadTimeout((int) cluster.getTimeout());
+   return new GossipQuotaStore(ttl, discoveryCatalog, new RestTemplate(
+    requestFactory), quotaGossipExecutor, serviceId, cluster.getSecret());
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "throttling.cluster.store",
+   havingValue = "gossip", matchIfMissing = true)
+  QuotaGossipRestController quotaGossipRestController(QuotaStore quotaStore,
+   ThrottlingProperties properties) {
+   return new QuotaGossipRestController(GossipQuotaStore.class.cast(quotaStore),
+    properties.getCluster().getSecret());
+  }
+
+  @Bean
+  ClusterQuotaSynchronizer clusterQuotaSynchronizer(
+   KeyedRateLimiter rateLimiter, QuotaStore quotaStore,
+   DiscoveryClient discoveryClient, DiscoveryCatalog discoveryCatalog,
+   ThrottlingProperties properties,
+   @Value("${spring.application.name}") String serviceId) {
+   return new ClusterQuotaSynchronizer(rateLimiter, quotaStore,
+    discoveryClient, discoveryCatalog, serviceId, properties.getCluster()
+     .getSyncInterval());
+  }
  }
 }
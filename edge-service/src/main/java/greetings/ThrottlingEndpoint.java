@@ -0,0 +1,20 @@
+package greetings;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import java.util.Map;
+
+class ThrottlingEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+ private final ThrottlingMetrics metrics;
+
+ ThrottlingEndpoint(ThrottlingMetrics metrics) {
+  super("throttling");
+  this.metrics = metrics;
+ }
+
+ @Override
+ public Map<String, Object> invoke() {
+  return this.metrics.summary();
+ }
+}
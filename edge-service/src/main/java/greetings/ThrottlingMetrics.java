@@ -0,0 +1,72 @@
+package greetings;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// aggregated per route: bucket keys are client ids, principals and
+// addresses, none of which belong on an actuator endpoint. only rejected
+// requests waited, so only they feed the retry-after histogram; admitted
+// ones would just pile up zeros in it.
+class ThrottlingMetrics {
+
+ private final RouteMetrics total = new RouteMetrics();
+
+ private final Cache<String, RouteMetrics> routes;
+
+ ThrottlingMetrics(long maxRoutes) {
+  this.routes = CacheBuilder.newBuilder().maximumSize(maxRoutes).build();
+ }
+
+ void record(String key, long waitNanos) {
+  int separator = key.indexOf('|');
+  String route = separator < 0 ? key : key.substring(0, separator);
+  RouteMetrics metrics = this.routes.getIfPresent(route);
+  if (metrics == null) {
+   metrics = this.routes.asMap().computeIfAbsent(route,
+    r -> new RouteMetrics());
+  }
+  this.total.record(waitNanos);
+  metrics.record(waitNanos);
+ }
+
+ Map<String, Object> summary() {
+  Map<String, Object> perRoute = new LinkedHashMap<>();
+  this.routes.asMap().forEach(
+   (route, metrics) -> perRoute.put(route, metrics.summary()));
+  Map<String, Object> summary = this.total.summary();
+  summary.put("routes", perRoute);
+  return summary;
+ }
+
+ private static class RouteMetrics {
+
+  private final LongAdder accepted = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final Histogram retryAfterMillis = new Histogram();
+
+  void record(long waitNanos) {
+   if (waitNanos > 0) {
+    this.rejected.increment();
+    this.retryAfterMillis.record(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+   }
+   else {
+    this.accepted.increment();
+   }
+  }
+
+  Map<String, Object> summary() {
+   Map<String, Object> summary = new LinkedHashMap<>();
+   summary.put("accepted", this.accepted.sum());
+   summary.put("rejected", this.rejected.sum());
+   summary.put("retryAfterMillis", this.retryAfterMillis.summary());
+   return summary;
+  }
+ }
+}
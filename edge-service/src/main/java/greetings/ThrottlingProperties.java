@@ -0,0 +1,76 @@
+package greetings;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("throttling")
+class ThrottlingProperties {
+
+ // upper bound on the number of live buckets across all keys
+ private long maxKeys = 100_000;
+
+ // buckets untouched for this long are evicted
+ private long idleTimeout = 10 * 60 * 1000;
+
+ // how many routes the throttling endpoint keeps counters and histograms for
+ private long metricsMaxRoutes = 1_000;
+
+ // addresses or CIDR ranges of the routers in front of us; x-forwarded-for
+ // is ignored unless the request came through one of them
+ private List<String> trustedProxies = new ArrayList<>();
+
+ private Limit defaults = new Limit();
+
+ private Cluster cluster = new Cluster();
+
+ // Zuul route id -> limit, overriding the defaults
+ private Map<String, Limit> routes = new HashMap<>();
+
+ Limit limitFor(String routeId) {
+  return routeId == null ? this.defaults : this.routes.getOrDefault(routeId,
+   this.defaults);
+ }
+
+ @Data
+ static class Limit {
+
+  private double permitsPerSecond = 1.0D / 10.0D;
+
+  private int burst = 1;
+
+  private ThrottleKey key = ThrottleKey.GLOBAL;
+ }
+
+ @Data
+ static class Cluster {
+
+  // when enabled the configured limits apply to the whole cluster and each
+  // instance enforces its share of them
+  private boolean enabled;
+
+  private long syncInterval = 1000;
+
+  // connect and read timeout for a single gossip push (ms); well below the
+  // sync interval so one slow peer can't hold up a round
+  private long timeout = 250;
+
+  // concurrent gossip pushes
+  private int gossipThreads = 4;
+
+  // shared by every instance and required with the gossip store: reports
+  // without it are refused
+  private String secret;
+
+  private Store store = Store.GOSSIP;
+
+  enum Store {
+   GOSSIP, MEMORY
+  }
+ }
+}
@@ -1,30 +1,46 @@
 package greetings;
 
-import com.google.common.util.concurrent.RateLimiter;
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
-import com.netflix.zuul.exception.ZuulException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.web.util.UrlPathHelper;
 
-import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletRequest;
 
 @Profile("throttled")
 @Component
 class ThrottlingZuulFilter extends ZuulFilter {
 
- private final HttpStatus tooManyRequests = HttpStatus.TOO_MANY_REQUESTS;
+ private final Rejection tooManyRequests = new Rejection(
+  HttpStatus.TOO_MANY_REQUESTS);
 
- private final RateLimiter rateLimiter;
+ private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+ private final KeyedRateLimiter rateLimiter;
+
+ private final RouteLocator routeLocator;
+
+ private final ThrottlingProperties properties;
+
+ private final ThrottlingMetrics metrics;
+
+ private final ClientAddressResolver addresses;
 
  @Autowired
- public ThrottlingZuulFilter(RateLimiter rateLimiter) {
+ public ThrottlingZuulFilter(KeyedRateLimiter rateLimiter,
+  RouteLocator routeLocator, ThrottlingProperties properties,
+  ThrottlingMetrics metrics, ClientAddressResolver addresses) {
   this.rateLimiter = rateLimiter;
+  this.routeLocator = routeLocator;
+  this.properties = properties;
+  this.metrics = metrics;
+  this.addresses = addresses;
  }
 
  // <1>
@@ -48,26 +64,23 @@ class ThrottlingZuulFilter extends ZuulFilter {
  // <4>
  @Override
  public Object run() {
-  try {
-   RequestContext currentContext = RequestContext.getCurrentContext();
-   HttpServletResponse response = currentContext.getResponse();
-
-   if (!rateLimiter.tryAcquire()) {
+  RequestContext currentContext = RequestContext.getCurrentContext();
+  HttpServletRequest request = currentContext.getRequest();
 
-    // <5>
-    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
-    response.setStatus(this.tooManyRequests.value());
-    response.getWriter().append(this.tooManyRequests.getReasonPhrase());
+  // this runs ahead of PreDecorationFilter, so resolve the route ourselves
+  Route route = this.routeLocator.getMatchingRoute(this.urlPathHelper
+   .getPathWithinApplication(request));
+  String routeId = route == null ? null : route.getId();
+  ThrottlingProperties.Limit limit = this.properties.limitFor(routeId);
+  String key = routeId + '|'
+   + limit.getKey().resolve(request, routeId, this.addresses);
 
-    // <6>
-    currentContext.setSendZuulResponse(false);
+  long waitNanos = this.rateLimiter.tryAcquire(key, limit);
+  this.metrics.record(key, waitNanos);
 
-    throw new ZuulException(this.tooManyRequests.getReasonPhrase(),
-     this.tooManyRequests.value(), this.tooManyRequests.getReasonPhrase());
-   }
-  }
-  catch (Exception e) {
-   ReflectionUtils.rethrowRuntimeException(e);
+  if (waitNanos > 0) {
+   // <5>
+   this.tooManyRequests.reject(currentContext, waitNanos);
   }
   return null;
  }
@@ -0,0 +1,49 @@
+package greetings;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// a lock-free token bucket expressed as a generic cell rate algorithm: the
+// only state is the theoretical arrival time of the next permit, advanced
+// with a single CAS per admitted request.
+final class TokenBucket {
+
+ private final AtomicLong theoreticalArrival;
+
+ private volatile long emissionInterval;
+
+ private volatile long burstTolerance;
+
+ TokenBucket(double permitsPerSecond, int burst) {
+  this.theoreticalArrival = new AtomicLong(System.nanoTime());
+  this.setRate(permitsPerSecond, burst);
+ }
+
+ void setRate(double permitsPerSecond, int burst) {
+  Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be positive");
+  long interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+  this.emissionInterval = interval;
+  this.burstTolerance = interval * Math.max(0, burst - 1);
+ }
+
+ double getPermitsPerSecond() {
+  return TimeUnit.SECONDS.toNanos(1) / (double) this.emissionInterval;
+ }
+
+ // returns 0 if a permit was taken, otherwise the nanos until one is free
+ long tryAcquire(long now) {
+  for (;;) {
+   long tat = this.theoreticalArrival.get();
+   long base = tat - now > 0 ? tat : now;
+   long wait = base - this.burstTolerance - now;
+   if (wait > 0) {
+    return wait;
+   }
+   if (this.theoreticalArrival.compareAndSet(tat, base + this.emissionInterval)) {
+    return 0;
+   }
+  }
+ }
+}
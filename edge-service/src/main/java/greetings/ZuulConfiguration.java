@@ -3,8 +3,15 @@ package greetings;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.EnableZuulProxy;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+//@formatter:off
+import org.springframework.cloud.netflix.zuul.filters.discovery
+        .ServiceRouteMapper;
+//@formatter:on
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -20,4 +27,13 @@ class ZuulConfiguration {
     r.getFullPath())));
  }
 
+ // takes the place of the stock discoveryRouteLocator
+ @Bean
+ IndexedRouteLocator discoveryRouteLocator(ServerProperties server,
+  DiscoveryClient discovery, ZuulProperties zuulProperties,
+  ServiceRouteMapper serviceRouteMapper) {
+  return new IndexedRouteLocator(server.getServletPrefix(), discovery,
+   zuulProperties, serviceRouteMapper);
+ }
+
 }
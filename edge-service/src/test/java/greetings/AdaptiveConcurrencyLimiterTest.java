@@ -0,0 +1,90 @@
+package greetings;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+ private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+ @Test
+ public void rejectsRequestsBeyondTheLimit() throws Exception {
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties(2));
+  assertThat(limiter.tryAcquire()).isTrue();
+  assertThat(limiter.tryAcquire()).isTrue();
+  assertThat(limiter.tryAcquire()).isFalse();
+  assertThat(limiter.getInFlight()).isEqualTo(2);
+ }
+
+ @Test
+ public void backsOffAfterDrops() throws Exception {
+  ConcurrencyLimitProperties properties = properties(20);
+  properties.setBackoffRatio(0.5);
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties);
+  limiter.tryAcquire();
+  limiter.release(MILLI, true);
+  assertThat(limiter.getLimit()).isEqualTo(10);
+  assertThat(limiter.getInFlight()).isZero();
+ }
+
+ @Test
+ public void growsWhileSaturatedAndLatencyHolds() throws Exception {
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties(4));
+  for (int i = 0; i < 4; i++) {
+   assertThat(limiter.tryAcquire()).isTrue();
+  }
+  limiter.release(MILLI, false);
+  assertThat(limiter.getLimit()).isEqualTo(6);
+ }
+
+ @Test
+ public void doesNotGrowWithoutTraffic() throws Exception {
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties(20));
+  limiter.tryAcquire();
+  limiter.release(MILLI, false);
+  assertThat(limiter.getLimit()).isEqualTo(20);
+ }
+
+ @Test
+ public void shrinksOnceRequestsQueueDownstream() throws Exception {
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties(100));
+  for (int i = 0; i < 60; i++) {
+   limiter.tryAcquire();
+  }
+  limiter.release(MILLI, false);
+  int grown = limiter.getLimit();
+  assertThat(grown).isGreaterThan(100);
+  limiter.tryAcquire();
+  limiter.release(10 * MILLI, false);
+  assertThat(limiter.getLimit()).isLessThan(100);
+ }
+
+ @Test
+ public void staysWithinBounds() throws Exception {
+  ConcurrencyLimitProperties properties = properties(5);
+  properties.setBackoffRatio(0.1);
+  AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+   properties);
+  limiter.tryAcquire();
+  limiter.release(MILLI, true);
+  assertThat(limiter.getLimit()).isEqualTo(properties.getMinLimit());
+ }
+
+ // every release closes a window, and each estimate replaces the last
+ private static ConcurrencyLimitProperties properties(int initialLimit) {
+  ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+  properties.setInitialLimit(initialLimit);
+  properties.setMinLimit(1);
+  properties.setWindow(0);
+  properties.setSmoothing(1.0);
+  return properties;
+ }
+}
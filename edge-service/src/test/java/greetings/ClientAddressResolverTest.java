@@ -0,0 +1,50 @@
+package greetings;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientAddressResolverTest {
+
+ private final ClientAddressResolver resolver = new ClientAddressResolver(
+  Arrays.asList("10.0.0.0/8", "127.0.0.1"));
+
+ @Test
+ public void ignoresForwardedForFromUntrustedPeers() throws Exception {
+  MockHttpServletRequest request = request("203.0.113.7", "198.51.100.1");
+  assertThat(this.resolver.resolve(request)).isEqualTo("203.0.113.7");
+ }
+
+ @Test
+ public void takesTheFirstUntrustedHopBehindOurProxies() throws Exception {
+  MockHttpServletRequest request = request("10.1.2.3",
+   "198.51.100.1, 203.0.113.7, 10.4.5.6");
+  assertThat(this.resolver.resolve(request)).isEqualTo("203.0.113.7");
+ }
+
+ @Test
+ public void neverTrustsHostNames() throws Exception {
+  MockHttpServletRequest request = request("10.1.2.3", "localhost, example.org");
+  assertThat(this.resolver.resolve(request)).isEqualTo("example.org");
+ }
+
+ @Test
+ public void trustsNothingByDefault() throws Exception {
+  ClientAddressResolver resolver = new ClientAddressResolver(
+   Collections.singletonList(""));
+  MockHttpServletRequest request = request("10.1.2.3", "198.51.100.1");
+  assertThat(resolver.resolve(request)).isEqualTo("10.1.2.3");
+ }
+
+ private static MockHttpServletRequest request(String remoteAddr,
+  String forwardedFor) {
+  MockHttpServletRequest request = new MockHttpServletRequest();
+  request.setRemoteAddr(remoteAddr);
+  request.addHeader("x-forwarded-for", forwardedFor);
+  return request;
+ }
+}
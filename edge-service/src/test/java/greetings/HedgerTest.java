@@ -0,0 +1,173 @@
+package greetings;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class HedgerTest {
+
+ private final ExecutorService executor = Executors.newCachedThreadPool();
+
+ @After
+ public void stop() throws Exception {
+  this.executor.shutdownNow();
+ }
+
+ @Test
+ public void doesNotHedgeUntilTheDelayIsKnown() throws Exception {
+  Hedger hedger = this.hedger(1, 10);
+  assertThat(hedger.execute("hi", slow("a"))).isEqualTo("a");
+  assertThat(metric(hedger, "hedging.hedges")).isZero();
+ }
+
+ @Test
+ public void runsInlineUntilTheDelayIsKnown() throws Exception {
+  Hedger hedger = this.hedger(1, 10);
+  assertThat(hedger.execute("hi", Thread::currentThread)).isSameAs(
+   Thread.currentThread());
+ }
+
+ @Test
+ public void runsInlineWhenEveryThreadIsBusy() throws Exception {
+  ThreadPoolExecutor busy = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+   new SynchronousQueue<>());
+  CountDownLatch release = new CountDownLatch(1);
+  try {
+   busy.execute(() -> {
+    try {
+     release.await();
+    }
+    catch (InterruptedException e) {
+     Thread.currentThread().interrupt();
+    }
+   });
+   Hedger hedger = this.hedger(busy, 1, 10);
+   hedger.execute("hi", () -> "a");
+   hedger.execute("hi", () -> "a");
+
+   // no waiting in a queue for the only thread to come free
+   assertThat(hedger.execute("hi", Thread::currentThread)).isSameAs(
+    Thread.currentThread());
+   assertThat(metric(hedger, "hedging.hedges")).isZero();
+  }
+  finally {
+   release.countDown();
+   busy.shutdownNow();
+  }
+ }
+
+ @Test
+ public void hedgesNoMoreThanTheBudgetAllows() throws Exception {
+  // half a hedge earned per request, one saved up at most
+  Hedger hedger = this.hedger(0.5, 1);
+  hedger.execute("hi", () -> "a");
+  hedger.execute("hi", () -> "a");
+  assertThat(metric(hedger, "hedging.budget")).isEqualTo(1.0);
+
+  hedger.execute("hi", slow("a"));
+  assertThat(metric(hedger, "hedging.hedges")).isEqualTo(1);
+  assertThat(metric(hedger, "hedging.budget")).isZero();
+
+  hedger.execute("hi", slow("a"));
+  assertThat(metric(hedger, "hedging.hedges")).isEqualTo(1);
+
+  hedger.execute("hi", slow("a"));
+  assertThat(metric(hedger, "hedging.hedges")).isEqualTo(2);
+  assertThat(metric(hedger, "hedging.requests")).isEqualTo(5);
+ }
+
+ @Test
+ public void abortsTheLosingAttempt() throws Exception {
+  Hedger hedger = this.hedger(1, 10);
+  hedger.execute("hi", () -> "a");
+  hedger.execute("hi", () -> "a");
+
+  AtomicInteger attempts = new AtomicInteger();
+  CountDownLatch aborted = new CountDownLatch(1);
+  String result = hedger.execute("hi", () -> {
+   if (attempts.incrementAndGet() > 1) {
+    return "hedge";
+   }
+   CountDownLatch stuck = new CountDownLatch(1);
+   Hedger.onAbort(() -> {
+    aborted.countDown();
+    stuck.countDown();
+   });
+   try {
+    stuck.await();
+   }
+   catch (InterruptedException e) {
+    // an interrupt alone wouldn't stop a socket read; keep waiting
+    try {
+     stuck.await();
+    }
+    catch (InterruptedException ignored) {
+    }
+   }
+   return "primary";
+  });
+
+  assertThat(result).isEqualTo("hedge");
+  assertThat(aborted.await(1, TimeUnit.SECONDS)).isTrue();
+  assertThat(metric(hedger, "hedging.hedge-wins")).isEqualTo(1);
+ }
+
+ @Test
+ public void ignoresAbortsOutsideAnAttempt() throws Exception {
+  Hedger.onAbort(() -> {
+   throw new AssertionError("aborted outside an attempt");
+  });
+ }
+
+ private Hedger hedger(double budgetRatio, int budgetBurst) {
+  return this.hedger(this.executor, budgetRatio, budgetBurst);
+ }
+
+ private Hedger hedger(ExecutorService executor, double budgetRatio,
+  int budgetBurst) {
+  HedgingProperties properties = new HedgingProperties();
+  properties.setRoutes(Collections.singletonList("hi"));
+  properties.setMinSamples(2);
+  properties.setMinDelay(10);
+  properties.setWindow(60_000);
+  properties.setBudgetRatio(budgetRatio);
+  properties.setBudgetBurst(budgetBurst);
+  return new Hedger(executor, properties, propagation());
+ }
+
+ @SuppressWarnings("unchecked")
+ private static RequestContextPropagation propagation() {
+  return new RequestContextPropagation(mock(ObjectProvider.class),
+   mock(ObjectProvider.class));
+ }
+
+ private static Supplier<String> slow(String value) {
+  return () -> {
+   try {
+    Thread.sleep(50);
+   }
+   catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+   }
+   return value;
+  };
+ }
+
+ private static double metric(Hedger hedger, String name) {
+  return hedger.metrics().stream().filter(m -> m.getName().equals(name))
+   .findFirst().map(m -> m.getValue().doubleValue()).orElse(Double.NaN);
+ }
+}
@@ -0,0 +1,83 @@
+package greetings;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class HistogramTest {
+
+ @Test
+ public void isEmptyUntilSomethingIsRecorded() throws Exception {
+  Histogram histogram = new Histogram();
+  assertThat(histogram.count()).isZero();
+  assertThat(histogram.percentile(99)).isZero();
+  assertThat(histogram.mean()).isZero();
+ }
+
+ @Test
+ public void resetForgetsEverything() throws Exception {
+  Histogram histogram = new Histogram();
+  for (int i = 1; i <= 1000; i++) {
+   histogram.record(i);
+  }
+  histogram.reset();
+  assertThat(histogram.count()).isZero();
+  assertThat(histogram.max()).isZero();
+  assertThat(histogram.mean()).isZero();
+  assertThat(histogram.percentile(99)).isZero();
+  histogram.record(5);
+  assertThat(histogram.percentile(100)).isEqualTo(5);
+ }
+
+ @Test
+ public void smallValuesAreExact() throws Exception {
+  Histogram histogram = new Histogram();
+  for (int i = 0; i < 8; i++) {
+   histogram.record(i);
+  }
+  assertThat(histogram.percentile(50)).isEqualTo(3);
+  assertThat(histogram.percentile(100)).isEqualTo(7);
+ }
+
+ @Test
+ public void percentilesAreWithinTheBucketError() throws Exception {
+  Histogram histogram = new Histogram();
+  for (int i = 1; i <= 1000; i++) {
+   histogram.record(i);
+  }
+  assertThat(histogram.count()).isEqualTo(1000);
+  assertThat(histogram.mean()).isCloseTo(500.5, within(0.001));
+  assertThat(histogram.max()).isEqualTo(1000);
+  assertThat(histogram.percentile(50)).isBetween(500L, 563L);
+  assertThat(histogram.percentile(99)).isBetween(990L, 1000L);
+  assertThat(histogram.percentile(100)).isEqualTo(1000);
+ }
+
+ @Test
+ public void negativeValuesCountAsZero() throws Exception {
+  Histogram histogram = new Histogram();
+  histogram.record(-5);
+  assertThat(histogram.count()).isEqualTo(1);
+  assertThat(histogram.max()).isZero();
+ }
+
+ @Test
+ public void hugeValuesDoNotOverflow() throws Exception {
+  Histogram histogram = new Histogram();
+  histogram.record(Long.MAX_VALUE);
+  assertThat(histogram.percentile(50)).isEqualTo(Long.MAX_VALUE);
+ }
+
+ @Test
+ public void mergesIntoAnotherHistogram() throws Exception {
+  Histogram a = new Histogram();
+  Histogram b = new Histogram();
+  a.record(10);
+  b.record(1000);
+  a.addTo(b);
+  assertThat(b.count()).isEqualTo(2);
+  assertThat(b.max()).isEqualTo(1000);
+  assertThat(b.percentile(50)).isBetween(10L, 11L);
+ }
+}
@@ -0,0 +1,44 @@
+package greetings;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryQuotaStoreTest {
+
+ @Test
+ public void sumsTheDemandOfEveryInstance() throws Exception {
+  InMemoryQuotaStore store = new InMemoryQuotaStore(60_000);
+  Map<String, Long> a = new HashMap<>();
+  a.put("hi|1.2.3.4", 3L);
+  a.put("hi|5.6.7.8", 1L);
+  store.exchange("a:8080", a);
+  Map<String, Long> totals = store.exchange("b:8080",
+   Collections.singletonMap("hi|1.2.3.4", 2L));
+  assertThat(totals).containsEntry("hi|1.2.3.4", 5L).containsEntry(
+   "hi|5.6.7.8", 1L);
+ }
+
+ @Test
+ public void keepsOnlyTheLatestReportPerInstance() throws Exception {
+  InMemoryQuotaStore store = new InMemoryQuotaStore(60_000);
+  store.exchange("a:8080", Collections.singletonMap("k", 10L));
+  Map<String, Long> totals = store.exchange("a:8080",
+   Collections.singletonMap("k", 1L));
+  assertThat(totals).containsEntry("k", 1L);
+ }
+
+ @Test
+ public void forgetsInstancesThatStopReporting() throws Exception {
+  InMemoryQuotaStore store = new InMemoryQuotaStore(50);
+  store.exchange("a:8080", Collections.singletonMap("k", 10L));
+  Thread.sleep(100);
+  Map<String, Long> totals = store.exchange("b:8080",
+   Collections.singletonMap("k", 1L));
+  assertThat(totals).containsEntry("k", 1L);
+ }
+}
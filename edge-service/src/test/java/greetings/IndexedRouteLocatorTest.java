@@ -0,0 +1,115 @@
+package greetings;
+
+import org.junit.Test;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
+import org.springframework.cloud.netflix.zuul.filters.ZuulProperties.ZuulRoute;
+//@formatter:off
+import org.springframework.cloud.netflix.zuul.filters.discovery
+        .DiscoveryClientRouteLocator;
+import org.springframework.cloud.netflix.zuul.filters.discovery
+        .SimpleServiceRouteMapper;
+//@formatter:on
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// the index must pick the same route as the linear scan it replaces,
+// SimpleRouteLocator's, given the same routes in the same order. the stock
+// DiscoveryClientRouteLocator is the reference, so both see the routes
+// after the same discovery handling (a /** route is moved to the end)
+public class IndexedRouteLocatorTest {
+
+ private static final List<String> PATHS = Arrays.asList("/", "/hi", "/hi/",
+  "/hi/greet", "/hi/greet/josh", "/hi/other", "/abc/greet", "/abc/greet/x",
+  "/abc/foo", "/xyz/foo", "/api", "/api/v1", "/api/v1/users",
+  "/api/v1/users/7", "/api/v2/users/7", "/apis/v1", "/lets/greet/josh",
+  "/nowhere/at/all");
+
+ @Test
+ public void literalRoutes() throws Exception {
+  assertMatchesLinearScan("/hi/greet", "/hi/greet/josh", "/abc/foo",
+   "/api");
+ }
+
+ @Test
+ public void wildcardFirstSegment() throws Exception {
+  assertMatchesLinearScan("/*/greet/**", "/{name}/foo", "/a?c/**",
+   "/hi/**");
+  assertMatchesLinearScan("/hi/**", "/*/greet/**", "/{name}/foo",
+   "/a?c/**");
+ }
+
+ @Test
+ public void catchAll() throws Exception {
+  assertMatchesLinearScan("/**", "/hi/**", "/api/v1/**");
+  assertMatchesLinearScan("/hi/**", "/api/v1/**", "/**");
+  assertMatchesLinearScan("/hi/**", "/**", "/api/v1/**");
+ }
+
+ @Test
+ public void overlappingPrefixes() throws Exception {
+  assertMatchesLinearScan("/api/**", "/api/v1/**",
+   "/api/v1/users/**");
+  assertMatchesLinearScan("/api/v1/users/**", "/api/v1/**",
+   "/api/**");
+  assertMatchesLinearScan("/api/v1/**", "/api/**",
+   "/api/v1/users/**", "/api/*/users/**");
+  assertMatchesLinearScan("/api/*/users/**", "/api/v1/users/7",
+   "/api/v1/**", "/hi/greet/*", "/hi/**");
+ }
+
+ @Test
+ public void followsRefreshedRoutes() throws Exception {
+  ZuulProperties properties = properties("/api/**", "/api/v1/**");
+  IndexedRouteLocator indexed = indexed(properties);
+  assertThat(indexed.getMatchingRoute("/api/v1/users").getPath())
+   .isEqualTo("/v1/users");
+
+  ZuulProperties reordered = properties("/api/v1/**", "/api/**");
+  properties.setRoutes(reordered.getRoutes());
+  indexed.refresh();
+  assertThat(indexed.getMatchingRoute("/api/v1/users").getPath())
+   .isEqualTo("/users");
+  assertThat(id(indexed, "/api/v2")).isEqualTo("r1");
+ }
+
+ private static void assertMatchesLinearScan(String... patterns) {
+  ZuulProperties properties = properties(patterns);
+  RouteLocator linear = new DiscoveryClientRouteLocator("", mock(
+   DiscoveryClient.class), properties, new SimpleServiceRouteMapper());
+  RouteLocator indexed = indexed(properties);
+  for (String path : PATHS) {
+   assertThat(id(indexed, path)).as("route for %s in %s", path,
+    Arrays.toString(patterns)).isEqualTo(id(linear, path));
+  }
+ }
+
+ private static IndexedRouteLocator indexed(ZuulProperties properties) {
+  return new IndexedRouteLocator("", mock(DiscoveryClient.class), properties,
+   new SimpleServiceRouteMapper());
+ }
+
+ // route ids follow the configured order: r0, r1, ...
+ private static ZuulProperties properties(String... patterns) {
+  ZuulProperties properties = new ZuulProperties();
+  for (int i = 0; i < patterns.length; i++) {
+   ZuulRoute route = new ZuulRoute();
+   route.setId("r" + i);
+   route.setPath(patterns[i]);
+   route.setServiceId("service" + i);
+   properties.getRoutes().put(route.getId(), route);
+  }
+  return properties;
+ }
+
+ private static String id(RouteLocator locator, String path) {
+  Route route = locator.getMatchingRoute(path);
+  return route == null ? null : route.getId();
+ }
+}
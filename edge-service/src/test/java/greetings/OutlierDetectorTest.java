@@ -0,0 +1,149 @@
+package greetings;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutlierDetectorTest {
+
+ private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+ @Test
+ public void ejectsOnErrorRate() throws Exception {
+  OutlierDetector detector = new OutlierDetector(properties());
+  // six of ten failed, never more than two in a row
+  boolean[] outcomes = { true, false, true, true, false, true, true, false,
+   true, false };
+  for (boolean failed : outcomes) {
+   detector.record("a", "a1:80", 10 * MS, failed);
+  }
+  calls(detector, "a", "a2:80", 10, 10, 4);
+  detector.evaluate();
+  assertThat(detector.isEjected("a1:80")).isTrue();
+  assertThat(detector.isEjected("a2:80")).isFalse();
+ }
+
+ @Test
+ public void ejectsOnConsecutiveFailures() throws Exception {
+  OutlierDetector detector = new OutlierDetector(properties());
+  calls(detector, "a", "a2:80", 1, 10, 0);
+  calls(detector, "a", "a1:80", 4, 10, 4);
+  detector.record("a", "a1:80", 10 * MS, false);
+  calls(detector, "a", "a1:80", 4, 10, 4);
+  assertThat(detector.isEjected("a1:80")).isFalse();
+  detector.record("a", "a1:80", 10 * MS, true);
+  assertThat(detector.isEjected("a1:80")).isTrue();
+ }
+
+ @Test
+ public void ejectsForTwiceAsLongEachTime() throws Exception {
+  OutlierDetectionProperties properties = properties();
+  properties.setBaseEjectionTime(200);
+  OutlierDetector detector = new OutlierDetector(properties);
+  calls(detector, "a", "a2:80", 1, 10, 0);
+
+  calls(detector, "a", "a1:80", 5, 10, 5);
+  assertThat(ejectedForMillis(detector, "a1:80")).isBetween(100L, 200L);
+  awaitReturn(detector, "a1:80");
+
+  calls(detector, "a", "a1:80", 5, 10, 5);
+  assertThat(ejectedForMillis(detector, "a1:80")).isBetween(300L, 400L);
+  assertThat(details(detector, "a1:80").get("ejections")).isEqualTo(2);
+ }
+
+ @Test
+ public void capsEjectionsWithinEachService() throws Exception {
+  OutlierDetector detector = new OutlierDetector(properties());
+  calls(detector, "a", "a1:80", 1, 10, 0);
+  calls(detector, "a", "a2:80", 1, 10, 0);
+  calls(detector, "a", "a1:80", 5, 10, 5);
+  calls(detector, "a", "a2:80", 5, 10, 5);
+  assertThat(detector.isEjected("a1:80")).isTrue();
+  // half of service a is out already
+  assertThat(detector.isEjected("a2:80")).isFalse();
+
+  calls(detector, "b", "b1:80", 1, 10, 0);
+  calls(detector, "b", "b2:80", 5, 10, 5);
+  assertThat(detector.isEjected("b2:80")).isTrue();
+ }
+
+ @Test
+ public void comparesLatencyWithinEachService() throws Exception {
+  OutlierDetector detector = new OutlierDetector(properties());
+  for (int i = 1; i <= 4; i++) {
+   calls(detector, "a", "a" + i + ":80", 10, 10, 0);
+  }
+  calls(detector, "a", "a5:80", 10, 100, 0);
+  // slower than service a, but not slower than each other
+  for (int i = 1; i <= 3; i++) {
+   calls(detector, "b", "b" + i + ":80", 10, 50, 0);
+  }
+  detector.evaluate();
+  assertThat(detector.isEjected("a5:80")).isTrue();
+  assertThat(detector.isEjected("a1:80")).isFalse();
+  for (int i = 1; i <= 3; i++) {
+   assertThat(detector.isEjected("b" + i + ":80")).isFalse();
+  }
+ }
+
+ @Test
+ public void rampsReturningInstancesBackUp() throws Exception {
+  OutlierDetectionProperties properties = properties();
+  properties.setBaseEjectionTime(50);
+  properties.setRecoveryTime(400);
+  OutlierDetector detector = new OutlierDetector(properties);
+  calls(detector, "a", "a2:80", 1, 10, 0);
+  assertThat(detector.weight("a1:80")).isEqualTo(1);
+
+  calls(detector, "a", "a1:80", 5, 10, 5);
+  assertThat(detector.weight("a1:80")).isZero();
+
+  awaitReturn(detector, "a1:80");
+  assertThat(detector.weight("a1:80")).isBetween(0.1, 0.9);
+  Thread.sleep(450);
+  assertThat(detector.weight("a1:80")).isEqualTo(1);
+ }
+
+ private static OutlierDetectionProperties properties() {
+  OutlierDetectionProperties properties = new OutlierDetectionProperties();
+  properties.setMinRequests(10);
+  properties.setMaxErrorRate(0.5);
+  properties.setConsecutiveFailures(5);
+  properties.setLatencyFactor(3);
+  properties.setBaseEjectionTime(10_000);
+  properties.setMaxEjectionTime(60_000);
+  properties.setMaxEjectionPercent(50);
+  return properties;
+ }
+
+ // the first `failures` calls fail, the rest succeed
+ private static void calls(OutlierDetector detector, String service,
+  String instance, int count, long millis, int failures) {
+  for (int i = 0; i < count; i++) {
+   detector.record(service, instance, millis * MS, i < failures);
+  }
+ }
+
+ private static void awaitReturn(OutlierDetector detector, String instance)
+  throws InterruptedException {
+  long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+  while (detector.isEjected(instance) && System.nanoTime() < deadline) {
+   Thread.sleep(5);
+  }
+  assertThat(detector.isEjected(instance)).isFalse();
+ }
+
+ private static long ejectedForMillis(OutlierDetector detector,
+  String instance) {
+  return (Long) details(detector, instance).get("ejectedForMillis");
+ }
+
+ @SuppressWarnings("unchecked")
+ private static Map<String, Object> details(OutlierDetector detector,
+  String instance) {
+  return (Map<String, Object>) detector.summary().get(instance);
+ }
+}
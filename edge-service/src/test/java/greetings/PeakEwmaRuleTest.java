@@ -0,0 +1,124 @@
+package greetings;
+
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PeakEwmaRuleTest {
+
+ private final Server a = new Server("a", 80);
+
+ private final Server b = new Server("b", 80);
+
+ @Test
+ public void prefersTheFasterInstance() throws Exception {
+  BaseLoadBalancer loadBalancer = this.loadBalancer(null);
+  responses(loadBalancer, this.a, 10, 10);
+  responses(loadBalancer, this.b, 10, 100);
+  assertAlwaysChosen(loadBalancer, this.a);
+ }
+
+ @Test
+ public void prefersTheLessBusyInstance() throws Exception {
+  BaseLoadBalancer loadBalancer = this.loadBalancer(null);
+  responses(loadBalancer, this.a, 10, 10);
+  responses(loadBalancer, this.b, 10, 10);
+  ServerStats stats = loadBalancer.getLoadBalancerStats().getSingleServerStat(
+   this.a);
+  for (int i = 0; i < 3; i++) {
+   stats.incrementActiveRequestsCount();
+  }
+  assertAlwaysChosen(loadBalancer, this.b);
+ }
+
+ @Test
+ public void reactsToALatencyPeakAtOnce() throws Exception {
+  BaseLoadBalancer loadBalancer = this.loadBalancer(null);
+  responses(loadBalancer, this.a, 10, 10);
+  responses(loadBalancer, this.b, 10, 50);
+  assertAlwaysChosen(loadBalancer, this.a);
+  responses(loadBalancer, this.a, 10, 1000);
+  assertAlwaysChosen(loadBalancer, this.b);
+ }
+
+ @Test
+ public void leavesEjectedInstancesOut() throws Exception {
+  OutlierDetector detector = new OutlierDetector(detection(50));
+  BaseLoadBalancer loadBalancer = this.loadBalancer(detector);
+  responses(loadBalancer, this.a, 10, 10);
+  responses(loadBalancer, this.b, 10, 100);
+  detector.record("svc", "b:80", 0, false);
+  eject(detector, "a:80");
+  assertAlwaysChosen(loadBalancer, this.b);
+ }
+
+ @Test
+ public void ejectingEverythingEjectsNothing() throws Exception {
+  OutlierDetector detector = new OutlierDetector(detection(100));
+  BaseLoadBalancer loadBalancer = this.loadBalancer(detector);
+  eject(detector, "a:80");
+  eject(detector, "b:80");
+  assertThat(loadBalancer.chooseServer("default")).isIn(this.a, this.b);
+ }
+
+ @Test
+ public void givesAReturningInstanceAReducedShare() throws Exception {
+  OutlierDetectionProperties properties = detection(50);
+  properties.setBaseEjectionTime(20);
+  properties.setRecoveryTime(60_000);
+  OutlierDetector detector = new OutlierDetector(properties);
+  BaseLoadBalancer loadBalancer = this.loadBalancer(detector);
+  responses(loadBalancer, this.a, 10, 10);
+  responses(loadBalancer, this.b, 10, 20);
+  detector.record("svc", "b:80", 0, false);
+  eject(detector, "a:80");
+  while (detector.isEjected("a:80")) {
+   Thread.sleep(5);
+  }
+  // at a tenth of its share, the faster instance costs more than the other
+  assertAlwaysChosen(loadBalancer, this.b);
+ }
+
+ private BaseLoadBalancer loadBalancer(OutlierDetector detector) {
+  LoadBalancingProperties properties = new LoadBalancingProperties();
+  BaseLoadBalancer loadBalancer = new BaseLoadBalancer();
+  loadBalancer.setRule(new PeakEwmaRule(properties, detector, null));
+  loadBalancer.addServers(Arrays.asList(this.a, this.b));
+  return loadBalancer;
+ }
+
+ private static OutlierDetectionProperties detection(int maxEjectionPercent) {
+  OutlierDetectionProperties properties = new OutlierDetectionProperties();
+  properties.setConsecutiveFailures(1);
+  properties.setMaxEjectionPercent(maxEjectionPercent);
+  return properties;
+ }
+
+ private static void eject(OutlierDetector detector, String instance) {
+  detector.record("svc", instance, 0, true);
+  assertThat(detector.isEjected(instance)).isTrue();
+ }
+
+ private static void responses(BaseLoadBalancer loadBalancer, Server server,
+  int count, long millis) {
+  ServerStats stats = loadBalancer.getLoadBalancerStats().getSingleServerStat(
+   server);
+  for (int i = 0; i < count; i++) {
+   stats.incrementNumRequests();
+   stats.noteResponseTime(millis);
+  }
+ }
+
+ // with two instances both are always compared, so the choice is certain
+ private static void assertAlwaysChosen(BaseLoadBalancer loadBalancer,
+  Server server) {
+  for (int i = 0; i < 20; i++) {
+   assertThat(loadBalancer.chooseServer("default")).isSameAs(server);
+  }
+ }
+}
@@ -0,0 +1,39 @@
+package greetings;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestPriorityTest {
+
+ @Test
+ public void anAuthorizationHeaderAloneIsNotEnough() throws Exception {
+  MockHttpServletRequest request = new MockHttpServletRequest();
+  request.addHeader("Authorization", "x");
+  assertThat(RequestPriority.classify(request, "/api/feign/world")).isEqualTo(
+   RequestPriority.ANONYMOUS);
+ }
+
+ @Test
+ public void aValidatedPrincipalIsAuthenticated() throws Exception {
+  MockHttpServletRequest request = new MockHttpServletRequest();
+  request.setUserPrincipal(new TestingAuthenticationToken("jlong", "spring"));
+  assertThat(RequestPriority.classify(request, "/api/feign/world")).isEqualTo(
+   RequestPriority.AUTHENTICATED);
+ }
+
+ @Test
+ public void proxiedRoutesAndStaticContent() throws Exception {
+  MockHttpServletRequest request = new MockHttpServletRequest();
+  assertThat(RequestPriority.classify(request, "/lets/greet/world"))
+   .isEqualTo(RequestPriority.ANONYMOUS);
+  assertThat(RequestPriority.classify(request, "/")).isEqualTo(
+   RequestPriority.STATIC);
+  assertThat(RequestPriority.classify(request, "/webjars/jquery/jquery.js"))
+   .isEqualTo(RequestPriority.STATIC);
+  assertThat(RequestPriority.classify(request, "/app.js")).isEqualTo(
+   RequestPriority.STATIC);
+ }
+}
@@ -0,0 +1,44 @@
+package greetings;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RollingHistogramTest {
+
+ @Test
+ public void snapshotCoversTheWindowsInRange() throws Exception {
+  RollingHistogram histogram = new RollingHistogram(60_000, 6);
+  for (int i = 1; i <= 100; i++) {
+   histogram.record(i);
+  }
+  Histogram snapshot = histogram.snapshot();
+  assertThat(snapshot.count()).isEqualTo(100);
+  assertThat(snapshot.max()).isEqualTo(100);
+ }
+
+ @Test
+ public void snapshotIsACopy() throws Exception {
+  RollingHistogram histogram = new RollingHistogram(60_000, 6);
+  histogram.record(1);
+  Histogram snapshot = histogram.snapshot();
+  histogram.record(2);
+  assertThat(snapshot.count()).isEqualTo(1);
+  assertThat(histogram.snapshot().count()).isEqualTo(2);
+ }
+
+ @Test
+ public void forgetsWindowsOutOfRange() throws Exception {
+  RollingHistogram histogram = new RollingHistogram(10, 2);
+  for (int i = 1; i <= 100; i++) {
+   histogram.record(1000);
+  }
+  Thread.sleep(50);
+  assertThat(histogram.snapshot().count()).isZero();
+
+  histogram.record(5);
+  Histogram snapshot = histogram.snapshot();
+  assertThat(snapshot.count()).isEqualTo(1);
+  assertThat(snapshot.max()).isEqualTo(5);
+ }
+}
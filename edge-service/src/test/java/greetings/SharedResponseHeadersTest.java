@@ -0,0 +1,46 @@
+package greetings;
+
+import com.netflix.util.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedResponseHeadersTest {
+
+ @Test
+ public void dropsCookiesAndHopByHopHeaders() throws Exception {
+  List<Pair<String, String>> headers = Arrays.asList(
+   new Pair<>("Content-Type", "application/json"),
+   new Pair<>("set-cookie", "SESSION=abc"),
+   new Pair<>("Transfer-Encoding", "chunked"),
+   new Pair<>("Connection", "keep-alive, X-Trace"),
+   new Pair<>("X-Trace", "1"),
+   new Pair<>("Cache-Control", "max-age=10"));
+  List<String> names = SharedResponseHeaders.of(headers).stream()
+   .map(Pair::first).collect(Collectors.toList());
+  assertThat(names).containsExactly("Content-Type", "Cache-Control");
+ }
+
+ @Test
+ public void varyIsFineWhenEveryNamedHeaderIsKeyed() throws Exception {
+  List<Pair<String, String>> headers = Collections.singletonList(new Pair<>(
+   "Vary", "Accept-Language, accept"));
+  assertThat(SharedResponseHeaders.variesBeyond(headers,
+   Arrays.asList("Accept", "Accept-Language"))).isFalse();
+  assertThat(SharedResponseHeaders.variesBeyond(headers,
+   Collections.singletonList("Accept"))).isTrue();
+ }
+
+ @Test
+ public void varyStarNeverMatches() throws Exception {
+  List<Pair<String, String>> headers = Collections.singletonList(new Pair<>(
+   "Vary", "*"));
+  assertThat(SharedResponseHeaders.variesBeyond(headers,
+   Collections.singletonList("Accept"))).isTrue();
+ }
+}
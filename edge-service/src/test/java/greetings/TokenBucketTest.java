@@ -0,0 +1,50 @@
+package greetings;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TokenBucketTest {
+
+ private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+ @Test
+ public void admitsTheBurstThenMakesCallersWait() throws Exception {
+  TokenBucket bucket = new TokenBucket(10, 3);
+  long now = System.nanoTime();
+  assertThat(bucket.tryAcquire(now)).isZero();
+  assertThat(bucket.tryAcquire(now)).isZero();
+  assertThat(bucket.tryAcquire(now)).isZero();
+  long wait = bucket.tryAcquire(now);
+  assertThat(wait).isPositive().isLessThanOrEqualTo(SECOND / 10);
+ }
+
+ @Test
+ public void refillsAtTheConfiguredRate() throws Exception {
+  TokenBucket bucket = new TokenBucket(10, 1);
+  long now = System.nanoTime();
+  assertThat(bucket.tryAcquire(now)).isZero();
+  assertThat(bucket.tryAcquire(now)).isPositive();
+  assertThat(bucket.tryAcquire(now + SECOND / 10)).isZero();
+  assertThat(bucket.tryAcquire(now + SECOND / 10)).isPositive();
+ }
+
+ @Test
+ public void idleTimeDoesNotBankMoreThanTheBurst() throws Exception {
+  TokenBucket bucket = new TokenBucket(10, 2);
+  long later = System.nanoTime() + 60 * SECOND;
+  assertThat(bucket.tryAcquire(later)).isZero();
+  assertThat(bucket.tryAcquire(later)).isZero();
+  assertThat(bucket.tryAcquire(later)).isPositive();
+ }
+
+ @Test
+ public void rateChangesApplyToLaterPermits() throws Exception {
+  TokenBucket bucket = new TokenBucket(1, 1);
+  bucket.setRate(100, 1);
+  assertThat(bucket.getPermitsPerSecond()).isCloseTo(100, within(0.01));
+ }
+}
@@ -0,0 +1,97 @@
+package greetings;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+// names in, one per line, greetings out as newline delimited JSON. both
+// sides are streamed a line at a time, so a million names cost no more
+// memory than ten.
+@Profile({ "default", "insecure", "secure", "zuul" })
+@RestController
+@RequestMapping(method = RequestMethod.POST, value = "/greet/bulk")
+class BulkGreetingsRestController {
+
+ static final String NDJSON = "application/x-ndjson";
+
+ // flush often enough that the caller sees progress, not on every line
+ private static final int FLUSH_EVERY = 64;
+
+ private final ObjectMapper objectMapper;
+
+ @Autowired
+ BulkGreetingsRestController(ObjectMapper objectMapper) {
+  this.objectMapper = objectMapper;
+ }
+
+ // the request body itself is the list
+ @RequestMapping(consumes = MediaType.TEXT_PLAIN_VALUE)
+ ResponseEntity<StreamingResponseBody> bulk(HttpServletRequest request,
+  Principal principal) throws IOException {
+  InputStream names = request.getInputStream();
+  return this.stream(names, principal);
+ }
+
+ // or the list is an uploaded file
+ @RequestMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+ ResponseEntity<StreamingResponseBody> bulk(
+  @RequestParam("file") MultipartFile file, Principal principal)
+  throws IOException {
+  return this.stream(file.getInputStream(), principal);
+ }
+
+ private ResponseEntity<StreamingResponseBody> stream(InputStream names,
+  Principal principal) {
+  String from = principal == null ? "" : " from " + principal.getName();
+  StreamingResponseBody body = out -> {
+   try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+    names, StandardCharsets.UTF_8))) {
+    this.greet(reader, out, from);
+   }
+  };
+  return ResponseEntity.ok()
+   .header(HttpHeaders.CONTENT_TYPE, NDJSON)
+   .body(body);
+ }
+
+ private void greet(BufferedReader names, OutputStream out, String from)
+  throws IOException {
+  JsonGenerator generator = this.objectMapper.getFactory().createGenerator(out);
+  generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  int count = 0;
+  String name;
+  while ((name = names.readLine()) != null) {
+   name = name.trim();
+   if (name.isEmpty()) {
+    continue;
+   }
+   generator.writeStartObject();
+   generator.writeStringField("greeting", "Hello, " + name + from + "!");
+   generator.writeEndObject();
+   generator.writeRaw('\n');
+   if (++count % FLUSH_EVERY == 0) {
+    generator.flush();
+   }
+  }
+  generator.close();
+ }
+}
@@ -0,0 +1,69 @@
+package greetings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+//@formatter:off
+import static org.springframework.test.web.servlet.request
+        .MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request
+        .MockMvcRequestBuilders.fileUpload;
+import static org.springframework.test.web.servlet.request
+        .MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result
+        .MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result
+        .MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result
+        .MockMvcResultMatchers.status;
+//@formatter:on
+
+public class BulkGreetingsRestControllerTest {
+
+ private static final String NAMES = "josh\n\n  mario \nsteph\n";
+
+ private static final String GREETINGS = "{\"greeting\":\"Hello, josh!\"}\n"
+  + "{\"greeting\":\"Hello, mario!\"}\n" + "{\"greeting\":\"Hello, steph!\"}\n";
+
+ private final MockMvc mvc = MockMvcBuilders.standaloneSetup(
+  new BulkGreetingsRestController(new ObjectMapper())).build();
+
+ @Test
+ public void namesInTheRequestBody() throws Exception {
+  this.assertGreets(post("/greet/bulk").contentType(MediaType.TEXT_PLAIN)
+   .content(NAMES));
+ }
+
+ @Test
+ public void namesInAnUploadedFile() throws Exception {
+  this.assertGreets(fileUpload("/greet/bulk").file(new MockMultipartFile(
+   "file", "names.txt", MediaType.TEXT_PLAIN_VALUE, NAMES
+    .getBytes(StandardCharsets.UTF_8))));
+ }
+
+ @Test
+ public void noNamesNoGreetings() throws Exception {
+  MvcResult result = this.mvc
+   .perform(post("/greet/bulk").contentType(MediaType.TEXT_PLAIN).content(""))
+   .andExpect(request().asyncStarted()).andReturn();
+  this.mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+   .andExpect(content().string(""));
+ }
+
+ // one JSON object per line, blank lines skipped, names trimmed
+ private void assertGreets(RequestBuilder bulk) throws Exception {
+  MvcResult result = this.mvc.perform(bulk)
+   .andExpect(request().asyncStarted()).andReturn();
+  this.mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+   .andExpect(content().contentType(BulkGreetingsRestController.NDJSON))
+   .andExpect(content().string(GREETINGS));
+ }
+}
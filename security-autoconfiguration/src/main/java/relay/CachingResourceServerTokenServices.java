@@ -0,0 +1,164 @@
+package relay;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+//@formatter:on
+import org.springframework.boot.autoconfigure.security.oauth2.resource
+        .UserInfoTokenServices;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions
+        .InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// remembers what a token resolved to, so a resource server asks auth-service
+// about each token once per ttl instead of once per request. tokens are
+// keyed by their SHA-256, concurrent lookups of one token share a single
+// call, and rejected tokens are remembered briefly as well, unless the
+// delegate can't tell a bad token from a failed lookup.
+public class CachingResourceServerTokenServices implements
+ ResourceServerTokenServices {
+
+ // the delegates' messages tend to quote the token itself
+ static final String INVALID_TOKEN = "invalid access token";
+
+ private final ResourceServerTokenServices delegate;
+
+ private final boolean negativeCaching;
+
+ private final Cache<String, Resolution> resolutions;
+
+ private final long ttl;
+
+ private final long negativeTtl;
+
+ private volatile boolean canReadAccessToken = true;
+
+ public CachingResourceServerTokenServices(
+  ResourceServerTokenServices delegate, TokenCacheProperties properties) {
+  this.delegate = delegate;
+  // UserInfoTokenServices reports any failure to reach the user info
+  // endpoint as an invalid token
+  this.negativeCaching = properties.getNegativeTtl() > 0
+   && !(delegate instanceof UserInfoTokenServices);
+  this.ttl = properties.getTtl();
+  this.negativeTtl = properties.getNegativeTtl();
+  this.resolutions = CacheBuilder.newBuilder()
+   .maximumSize(properties.getMaxSize())
+   .expireAfterWrite(Math.max(this.ttl, this.negativeTtl),
+    TimeUnit.MILLISECONDS).build();
+ }
+
+ @Override
+ public OAuth2Authentication loadAuthentication(String accessToken)
+  throws AuthenticationException, InvalidTokenException {
+  String key = hash(accessToken);
+  Resolution resolution = this.resolve(key, accessToken);
+  if (resolution.isExpired()) {
+   this.resolutions.asMap().remove(key, resolution);
+   resolution = this.resolve(key, accessToken);
+  }
+  if (resolution.authentication == null) {
+   throw new InvalidTokenException(resolution.error);
+  }
+  // OAuth2AuthenticationManager sets the details of what it is given, so
+  // every request gets its own copy; the cached one is never handed out
+  OAuth2Authentication cached = resolution.authentication;
+  OAuth2Authentication authentication = new OAuth2Authentication(
+   cached.getOAuth2Request(), cached.getUserAuthentication());
+  authentication.setDetails(cached.getDetails());
+  return authentication;
+ }
+
+ @Override
+ public OAuth2AccessToken readAccessToken(String accessToken) {
+  return this.delegate.readAccessToken(accessToken);
+ }
+
+ private Resolution resolve(String key, String accessToken) {
+  try {
+   return this.resolutions.get(key, () -> this.load(accessToken));
+  }
+  catch (ExecutionException | UncheckedExecutionException e) {
+   if (e.getCause() instanceof RuntimeException) {
+    throw (RuntimeException) e.getCause();
+   }
+   throw new IllegalStateException(e.getCause());
+  }
+ }
+
+ // only invalid tokens are cached as failures; auth-service being
+ // unreachable is not the token's fault
+ private Resolution load(String accessToken) {
+  long now = System.currentTimeMillis();
+  try {
+   OAuth2Authentication authentication = this.delegate
+    .loadAuthentication(accessToken);
+   return new Resolution(authentication, null, Math.min(now + this.ttl,
+    this.expiryOf(accessToken)));
+  }
+  catch (InvalidTokenException e) {
+   if (!this.negativeCaching) {
+    throw new InvalidTokenException(INVALID_TOKEN);
+   }
+   return new Resolution(null, INVALID_TOKEN, now + this.negativeTtl);
+  }
+ }
+
+ // user info endpoints can't tell, token stores and JWTs can
+ private long expiryOf(String accessToken) {
+  if (this.canReadAccessToken) {
+   try {
+    OAuth2AccessToken token = this.delegate.readAccessToken(accessToken);
+    if (token != null && token.getExpiration() != null) {
+     return token.getExpiration().getTime();
+    }
+   }
+   catch (UnsupportedOperationException e) {
+    this.canReadAccessToken = false;
+   }
+  }
+  return Long.MAX_VALUE;
+ }
+
+ static String hash(String accessToken) {
+  try {
+   return Base64.getEncoder().encodeToString(MessageDigest.getInstance(
+    "SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+  }
+  catch (NoSuchAlgorithmException e) {
+   throw new IllegalStateException(e);
+  }
+ }
+
+ private static class Resolution {
+
+  private final OAuth2Authentication authentication;
+
+  private final String error;
+
+  private final long expiresAt;
+
+  Resolution(OAuth2Authentication authentication, String error,
+   long expiresAt) {
+   this.authentication = authentication;
+   this.error = error;
+   this.expiresAt = expiresAt;
+  }
+
+  boolean isExpired() {
+   return System.currentTimeMillis() >= this.expiresAt;
+  }
+ }
+}
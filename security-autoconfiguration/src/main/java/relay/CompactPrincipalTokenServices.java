@@ -0,0 +1,165 @@
+package relay;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+//@formatter:on
+import org.springframework.security.authentication
+        .UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.common
+        .DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions
+        .InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// resolves tokens against auth-service's compact principal: name, authorities
+// and expiry only. the last answer for each token is kept with its ETag, so
+// the read that follows a load is free and later lookups revalidate with a
+// 304 instead of fetching the principal again.
+public class CompactPrincipalTokenServices implements
+ ResourceServerTokenServices {
+
+ private static final MediaType PRINCIPAL_MEDIA_TYPE = MediaType
+  .parseMediaType("application/vnd.cnj.principal.v1+json");
+
+ // a load and the read right after it share one response (ms)
+ private static final long REUSE_WINDOW = 1000;
+
+ private final RestTemplate restTemplate;
+
+ private final String uri;
+
+ private final String clientId;
+
+ private final Cache<String, Principal> principals;
+
+ public CompactPrincipalTokenServices(RestTemplate restTemplate,
+  PrincipalProperties properties, String clientId) {
+  this.restTemplate = restTemplate;
+  this.uri = properties.getUri();
+  this.clientId = clientId;
+  this.principals = CacheBuilder.newBuilder()
+   .maximumSize(properties.getMaxSize())
+   .expireAfterAccess(1, TimeUnit.HOURS).build();
+ }
+
+ @Override
+ public OAuth2Authentication loadAuthentication(String accessToken)
+  throws AuthenticationException, InvalidTokenException {
+  Principal principal = this.principal(accessToken);
+  OAuth2Request request = new OAuth2Request(null, this.clientId,
+   principal.authorities, true, null, null, null, null, null);
+  UsernamePasswordAuthenticationToken user =
+   new UsernamePasswordAuthenticationToken(principal.name, "N/A",
+    principal.authorities);
+  return new OAuth2Authentication(request, user);
+ }
+
+ @Override
+ public OAuth2AccessToken readAccessToken(String accessToken) {
+  DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(accessToken);
+  token.setExpiration(new Date(this.principal(accessToken).expiresAt));
+  return token;
+ }
+
+ private Principal principal(String accessToken) {
+  String key = CachingResourceServerTokenServices.hash(accessToken);
+  Principal known = this.principals.getIfPresent(key);
+  long now = System.currentTimeMillis();
+  if (known != null && now >= known.expiresAt) {
+   this.principals.invalidate(key);
+   throw new InvalidTokenException("token expired");
+  }
+  if (known != null && now - known.checkedAt < REUSE_WINDOW) {
+   return known;
+  }
+  HttpHeaders headers = new HttpHeaders();
+  headers.set(HttpHeaders.AUTHORIZATION, OAuth2AccessToken.BEARER_TYPE + ' '
+   + accessToken);
+  headers.setAccept(Collections.singletonList(PRINCIPAL_MEDIA_TYPE));
+  if (known != null && known.etag != null) {
+   headers.setIfNoneMatch(known.etag);
+  }
+  ResponseEntity<Map<String, Object>> response;
+  try {
+   response = this.restTemplate.exchange(this.uri, HttpMethod.GET,
+    new HttpEntity<>(headers),
+    new ParameterizedTypeReference<Map<String, Object>>() {
+    });
+  }
+  catch (HttpClientErrorException e) {
+   this.principals.invalidate(key);
+   // not the token itself, which would end up in logs and responses
+   throw new InvalidTokenException(
+    CachingResourceServerTokenServices.INVALID_TOKEN);
+  }
+  Principal principal = response.getStatusCode() == HttpStatus.NOT_MODIFIED
+   && known != null ? known.checked(now) : principal(response, now);
+  this.principals.put(key, principal);
+  return principal;
+ }
+
+ @SuppressWarnings("unchecked")
+ private static Principal principal(ResponseEntity<Map<String, Object>> response,
+  long now) {
+  Map<String, Object> body = response.getBody();
+  if (body == null || !(body.get("exp") instanceof Number)) {
+   throw new InvalidTokenException("unexpected principal representation");
+  }
+  List<String> authorities = (List<String>) body.getOrDefault("authorities",
+   Collections.emptyList());
+  return new Principal((String) body.get("name"),
+   AuthorityUtils.createAuthorityList(authorities.toArray(new String[0])),
+   ((Number) body.get("exp")).longValue() * 1000, response.getHeaders()
+    .getETag(), now);
+ }
+
+ private static class Principal {
+
+  private final String name;
+
+  private final List<GrantedAuthority> authorities;
+
+  private final long expiresAt;
+
+  private final String etag;
+
+  private final long checkedAt;
+
+  Principal(String name, List<GrantedAuthority> authorities, long expiresAt,
+   String etag, long checkedAt) {
+   this.name = name;
+   this.authorities = authorities;
+   this.expiresAt = expiresAt;
+   this.etag = etag;
+   this.checkedAt = checkedAt;
+  }
+
+  Principal checked(long now) {
+   return new Principal(this.name, this.authorities, this.expiresAt,
+    this.etag, now);
+  }
+ }
+}
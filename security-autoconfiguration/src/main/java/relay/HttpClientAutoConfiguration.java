@@ -0,0 +1,139 @@
+package relay;
+
+import feign.Client;
+import feign.Request;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+//@formatter:on
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure
+        .AutoConfigureBefore;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties
+        .EnableConfigurationProperties;
+import org.springframework.cloud.netflix.feign.ribbon
+        .CachingSpringLoadBalancerFactory;
+import org.springframework.cloud.netflix.feign.ribbon
+        .FeignRibbonClientAutoConfiguration;
+import org.springframework.cloud.netflix.feign.ribbon
+        .LoadBalancerFeignClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+//@formatter:off
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// one pooled, keep-alive Apache HttpClient shared by the load-balanced
+// RestTemplate and Feign, so calls between services reuse connections
+// instead of paying a handshake each time
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnClass(CloseableHttpClient.class)
+@AutoConfigureBefore(FeignRibbonClientAutoConfiguration.class)
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientAutoConfiguration {
+
+ @Bean(destroyMethod = "close")
+ @ConditionalOnMissingBean
+ PoolingHttpClientConnectionManager relayConnectionManager(
+  HttpClientProperties properties) {
+  PoolingHttpClientConnectionManager connectionManager =
+   new PoolingHttpClientConnectionManager();
+  connectionManager.setMaxTotal(properties.getMaxTotal());
+  connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+  return connectionManager;
+ }
+
+ @Bean(destroyMethod = "close")
+ @ConditionalOnMissingBean
+ CloseableHttpClient relayHttpClient(
+  PoolingHttpClientConnectionManager connectionManager,
+  HttpClientProperties properties) {
+  RequestConfig requestConfig = RequestConfig.custom()
+   .setConnectTimeout(properties.getConnectTimeout())
+   .setSocketTimeout(properties.getReadTimeout())
+   .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+   .build();
+  return new PooledHttpClient(HttpClientBuilder.create()
+   .setConnectionManager(connectionManager)
+   .setDefaultRequestConfig(requestConfig)
+   .setKeepAliveStrategy((response, context) -> {
+    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+     .getKeepAliveDuration(response, context);
+    return keepAlive > 0 ? Math.min(keepAlive, properties.getKeepAlive())
+     : properties.getKeepAlive();
+   })
+   .evictExpiredConnections()
+   .evictIdleConnections(properties.getMaxIdle(), TimeUnit.MILLISECONDS)
+   .build(), properties.getConnectionRequestTimeout());
+ }
+
+ @Bean
+ @ConditionalOnMissingBean
+ HttpComponentsClientHttpRequestFactory relayRequestFactory(
+  CloseableHttpClient httpClient) {
+  return new HttpComponentsClientHttpRequestFactory(httpClient);
+ }
+
+ @Configuration
+ @ConditionalOnClass(PublicMetrics.class)
+ public static class HttpClientMetricsConfiguration {
+
+  @Bean
+  PublicMetrics relayHttpClientMetrics(
+   PoolingHttpClientConnectionManager connectionManager) {
+   return () -> {
+    PoolStats stats = connectionManager.getTotalStats();
+    Collection<Metric<?>> metrics = new ArrayList<>();
+    metrics.add(new Metric<>("httpclient.pool.leased", stats.getLeased()));
+    metrics.add(new Metric<>("httpclient.pool.available", stats.getAvailable()));
+    metrics.add(new Metric<>("httpclient.pool.pending", stats.getPending()));
+    metrics.add(new Metric<>("httpclient.pool.max", stats.getMax()));
+    metrics.add(new Metric<>("httpclient.pool.routes", connectionManager
+     .getRoutes().size()));
+    return metrics;
+   };
+  }
+ }
+
+ @Configuration
+ @ConditionalOnClass({ ApacheHttpClient.class, LoadBalancerFeignClient.class })
+ public static class FeignHttpClientConfiguration {
+
+  @Bean
+  @ConditionalOnMissingBean
+  Client feignClient(CloseableHttpClient httpClient,
+   CachingSpringLoadBalancerFactory cachingFactory,
+   SpringClientFactory clientFactory) {
+   return new LoadBalancerFeignClient(new ApacheHttpClient(httpClient),
+    cachingFactory, clientFactory);
+  }
+
+  // Feign hands the client its own connect and read timeouts on every call,
+  // Ribbon's unless options are given, so these take the place of Ribbon's
+  // per-client ConnectTimeout and ReadTimeout for Feign calls
+  @Bean
+  @ConditionalOnMissingBean
+  Request.Options feignRequestOptions(HttpClientProperties properties) {
+   return new Request.Options(properties.getConnectTimeout(),
+    properties.getReadTimeout());
+  }
+ }
+}
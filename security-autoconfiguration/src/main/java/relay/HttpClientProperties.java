@@ -0,0 +1,28 @@
+package relay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("relay.http")
+public class HttpClientProperties {
+
+ // pooled connections across all downstream instances
+ private int maxTotal = 200;
+
+ // pooled connections per downstream host:port, i.e. per instance
+ private int maxPerRoute = 50;
+
+ // how long to keep a connection when the server doesn't say (ms)
+ private long keepAlive = 30_000;
+
+ // pooled connections idle for longer than this are closed (ms)
+ private long maxIdle = 60_000;
+
+ private int connectTimeout = 2_000;
+
+ private int readTimeout = 10_000;
+
+ // how long to wait for a connection from an exhausted pool (ms)
+ private int connectionRequestTimeout = 1_000;
+}
@@ -0,0 +1,113 @@
+package relay;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// the authorization server's published signing keys, fetched once and then
+// refreshed in the background. auth-service publishes a new key well before
+// it signs with it, so an unknown kid should be rare; when one shows up
+// anyway the set is fetched again, at most once per minRefreshInterval.
+public class JwtKeySet {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final RestTemplate restTemplate;
+
+ private final JwtKeySetProperties properties;
+
+ private final ScheduledExecutorService scheduler = Executors
+  .newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "jwt-key-set");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ private volatile Map<String, RSAPublicKey> keys = Collections.emptyMap();
+
+ private volatile long fetchedAt;
+
+ public JwtKeySet(RestTemplate restTemplate, JwtKeySetProperties properties) {
+  this.restTemplate = restTemplate;
+  this.properties = properties;
+ }
+
+ // the first fetch happens in the background too; auth-service may well
+ // not be up yet
+ @PostConstruct
+ public void start() {
+  this.scheduler.scheduleWithFixedDelay(this::refresh, 0,
+   this.properties.getRefreshInterval(), TimeUnit.MILLISECONDS);
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.scheduler.shutdownNow();
+ }
+
+ RSAPublicKey key(String kid) {
+  RSAPublicKey key = this.keys.get(kid);
+  if (key == null && System.currentTimeMillis() - this.fetchedAt >= this.properties
+   .getMinRefreshInterval()) {
+   synchronized (this) {
+    if (System.currentTimeMillis() - this.fetchedAt >= this.properties
+     .getMinRefreshInterval()) {
+     this.refresh();
+    }
+   }
+   key = this.keys.get(kid);
+  }
+  return key;
+ }
+
+ private void refresh() {
+  this.fetchedAt = System.currentTimeMillis();
+  try {
+   //@formatter:off
+   ParameterizedTypeReference<Map<String, List<Map<String, String>>>> type =
+       new ParameterizedTypeReference<Map<String, List<Map<String, String>>>>() {};
+   //@formatter:on
+   Map<String, List<Map<String, String>>> body = this.restTemplate.exchange(
+    this.properties.getKeySetUri(), HttpMethod.GET, null, type).getBody();
+   Map<String, RSAPublicKey> keys = new HashMap<>();
+   KeyFactory factory = KeyFactory.getInstance("RSA");
+   for (Map<String, String> jwk : body.getOrDefault("keys",
+    Collections.emptyList())) {
+    if ("RSA".equals(jwk.get("kty")) && jwk.get("kid") != null) {
+     keys.put(jwk.get("kid"), (RSAPublicKey) factory
+      .generatePublic(new RSAPublicKeySpec(unsigned(jwk.get("n")),
+       unsigned(jwk.get("e")))));
+    }
+   }
+   if (!keys.keySet().equals(this.keys.keySet())) {
+    this.log.info("signing keys now " + keys.keySet());
+   }
+   this.keys = Collections.unmodifiableMap(keys);
+  }
+  catch (Exception e) {
+   this.log.warn("couldn't fetch the key set from "
+    + this.properties.getKeySetUri(), e);
+  }
+ }
+
+ private static BigInteger unsigned(String base64) {
+  return new BigInteger(1, Base64.getUrlDecoder().decode(base64));
+ }
+}
@@ -0,0 +1,59 @@
+package relay;
+
+import org.springframework.beans.factory.ObjectProvider;
+//@formatter:on
+import org.springframework.boot.autoconfigure
+        .AutoConfigureBefore;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.OAuth2AutoConfiguration;
+import org.springframework.boot.context.properties
+        .EnableConfigurationProperties;
+import org.springframework.cloud.client.loadbalancer
+        .LoadBalancerInterceptor;
+//@formatter:off
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+//@formatter:on
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+import org.springframework.web.client.RestTemplate;
+
+// local token validation against auth-service's published keys. registered
+// ahead of Boot's OAuth2 support so its userInfoUri based token services
+// back off.
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnClass(ResourceServerTokenServices.class)
+@ConditionalOnProperty("relay.jwt.key-set-uri")
+@AutoConfigureBefore(OAuth2AutoConfiguration.class)
+@EnableConfigurationProperties(JwtKeySetProperties.class)
+public class JwtKeySetAutoConfiguration {
+
+ @Bean
+ JwtKeySet jwtKeySet(JwtKeySetProperties properties,
+  HttpComponentsClientHttpRequestFactory requestFactory,
+  ObjectProvider<LoadBalancerInterceptor> loadBalancerInterceptor) {
+  // not the @LoadBalanced template: in the secure profile that one wants
+  // a token itself
+  RestTemplate restTemplate = new RestTemplate(requestFactory);
+  LoadBalancerInterceptor interceptor = loadBalancerInterceptor
+   .getIfAvailable();
+  if (properties.isLoadBalanced() && interceptor != null) {
+   restTemplate.getInterceptors().add(interceptor);
+  }
+  return new JwtKeySet(restTemplate, properties);
+ }
+
+ @Bean
+ ResourceServerTokenServices jwtKeySetTokenServices(JwtKeySet jwtKeySet) {
+  return new JwtKeySetTokenServices(jwtKeySet);
+ }
+}
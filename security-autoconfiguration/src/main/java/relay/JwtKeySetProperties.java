@@ -0,0 +1,22 @@
+package relay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("relay.jwt")
+public class JwtKeySetProperties {
+
+ // e.g. http://auth-service/uaa/.well-known/jwks.json; setting it switches
+ // token validation from userInfoUri to local signature checks
+ private String keySetUri;
+
+ // resolve the key set host through the load balancer
+ private boolean loadBalanced = true;
+
+ // how often the key set is fetched in the background (ms)
+ private long refreshInterval = 5 * 60 * 1000L;
+
+ // an unknown kid triggers a fetch at most this often (ms)
+ private long minRefreshInterval = 10_000;
+}
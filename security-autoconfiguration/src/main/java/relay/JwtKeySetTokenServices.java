@@ -0,0 +1,102 @@
+package relay;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+//@formatter:on
+import org.springframework.security.oauth2.common.exceptions
+        .InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token
+        .AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token
+        .DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Map;
+
+// validates RS256 access tokens against the published key set: signature
+// and expiry are checked here, no call to auth-service involved
+public class JwtKeySetTokenServices implements ResourceServerTokenServices {
+
+ private static final TypeReference<Map<String, Object>> MAP =
+  new TypeReference<Map<String, Object>>() {
+  };
+
+ private final ObjectMapper objectMapper = new ObjectMapper();
+
+ private final AccessTokenConverter accessTokenConverter =
+  new DefaultAccessTokenConverter();
+
+ private final JwtKeySet keySet;
+
+ public JwtKeySetTokenServices(JwtKeySet keySet) {
+  this.keySet = keySet;
+ }
+
+ @Override
+ public OAuth2Authentication loadAuthentication(String accessToken)
+  throws AuthenticationException, InvalidTokenException {
+  return this.accessTokenConverter.extractAuthentication(this
+   .claims(accessToken));
+ }
+
+ @Override
+ public OAuth2AccessToken readAccessToken(String accessToken) {
+  return this.accessTokenConverter.extractAccessToken(accessToken,
+   this.claims(accessToken));
+ }
+
+ private Map<String, Object> claims(String token) {
+  String[] parts = token.split("\\.");
+  if (parts.length != 3) {
+   throw new InvalidTokenException("not a signed JWT");
+  }
+  try {
+   Map<String, Object> header = this.objectMapper.readValue(decode(parts[0]),
+    MAP);
+   if (!"RS256".equals(header.get("alg"))) {
+    throw new InvalidTokenException("unsupported algorithm");
+   }
+   RSAPublicKey key = this.keySet.key((String) header.get("kid"));
+   if (key == null) {
+    throw new InvalidTokenException("unknown signing key");
+   }
+   Signature signature = Signature.getInstance("SHA256withRSA");
+   signature.initVerify(key);
+   signature.update((parts[0] + '.' + parts[1])
+    .getBytes(StandardCharsets.US_ASCII));
+   if (!signature.verify(decode(parts[2]))) {
+    throw new InvalidTokenException("invalid token signature");
+   }
+   Map<String, Object> claims = this.objectMapper.readValue(decode(parts[1]),
+    MAP);
+   Object exp = claims.get(AccessTokenConverter.EXP);
+   if (!(exp instanceof Number)) {
+    throw new InvalidTokenException("token has no expiry");
+   }
+   if (((Number) exp).longValue() * 1000 <= System.currentTimeMillis()) {
+    throw new InvalidTokenException("token expired");
+   }
+   claims.put(AccessTokenConverter.EXP, ((Number) exp).longValue());
+   return claims;
+  }
+  catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+   throw new InvalidTokenException("cannot decode the access token", e);
+  }
+ }
+
+ private static byte[] decode(String base64) {
+  return Base64.getUrlDecoder().decode(
+   base64.getBytes(StandardCharsets.US_ASCII));
+ }
+}
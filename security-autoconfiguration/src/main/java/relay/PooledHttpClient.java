@@ -0,0 +1,61 @@
+package relay;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+// a request that brings its own RequestConfig, as Feign's ApacheHttpClient
+// does for every call, replaces the client's default one entirely and with
+// it the pool's lease timeout; it's put back here, so no caller waits
+// forever for a connection once the pool is exhausted
+@SuppressWarnings("deprecation")
+class PooledHttpClient extends CloseableHttpClient {
+
+ private final CloseableHttpClient delegate;
+
+ private final int connectionRequestTimeout;
+
+ PooledHttpClient(CloseableHttpClient delegate, int connectionRequestTimeout) {
+  this.delegate = delegate;
+  this.connectionRequestTimeout = connectionRequestTimeout;
+ }
+
+ @Override
+ protected CloseableHttpResponse doExecute(HttpHost target,
+  HttpRequest request, HttpContext context) throws IOException,
+  ClientProtocolException {
+  if (request instanceof HttpRequestBase) {
+   HttpRequestBase configurable = (HttpRequestBase) request;
+   RequestConfig config = configurable.getConfig();
+   if (config != null && config.getConnectionRequestTimeout() < 0) {
+    configurable.setConfig(RequestConfig.copy(config)
+     .setConnectionRequestTimeout(this.connectionRequestTimeout).build());
+   }
+  }
+  return this.delegate.execute(target, request, context);
+ }
+
+ @Override
+ public HttpParams getParams() {
+  return this.delegate.getParams();
+ }
+
+ @Override
+ public ClientConnectionManager getConnectionManager() {
+  return this.delegate.getConnectionManager();
+ }
+
+ @Override
+ public void close() throws IOException {
+  this.delegate.close();
+ }
+}
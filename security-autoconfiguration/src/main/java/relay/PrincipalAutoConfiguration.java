@@ -0,0 +1,65 @@
+package relay;
+
+import org.springframework.beans.factory.ObjectProvider;
+//@formatter:on
+import org.springframework.boot.autoconfigure
+        .AutoConfigureAfter;
+import org.springframework.boot.autoconfigure
+        .AutoConfigureBefore;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.OAuth2AutoConfiguration;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.context.properties
+        .EnableConfigurationProperties;
+import org.springframework.cloud.client.loadbalancer
+        .LoadBalancerInterceptor;
+//@formatter:off
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+//@formatter:on
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+import org.springframework.web.client.RestTemplate;
+
+// resource servers that set relay.principal.uri resolve tokens against
+// auth-service's compact principal rather than the full userInfoUri graph.
+// local JWT validation, when configured too, wins.
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnClass(ResourceServerTokenServices.class)
+@ConditionalOnProperty("relay.principal.uri")
+@AutoConfigureAfter(JwtKeySetAutoConfiguration.class)
+@AutoConfigureBefore(OAuth2AutoConfiguration.class)
+@EnableConfigurationProperties(PrincipalProperties.class)
+public class PrincipalAutoConfiguration {
+
+ @Bean
+ @ConditionalOnMissingBean(ResourceServerTokenServices.class)
+ ResourceServerTokenServices compactPrincipalTokenServices(
+  PrincipalProperties properties,
+  HttpComponentsClientHttpRequestFactory requestFactory,
+  ObjectProvider<LoadBalancerInterceptor> loadBalancerInterceptor,
+  ObjectProvider<ResourceServerProperties> resourceServerProperties) {
+  RestTemplate restTemplate = new RestTemplate(requestFactory);
+  LoadBalancerInterceptor interceptor = loadBalancerInterceptor
+   .getIfAvailable();
+  if (properties.isLoadBalanced() && interceptor != null) {
+   restTemplate.getInterceptors().add(interceptor);
+  }
+  ResourceServerProperties resource = resourceServerProperties
+   .getIfAvailable();
+  return new CompactPrincipalTokenServices(restTemplate, properties,
+   resource == null ? null : resource.getClientId());
+ }
+}
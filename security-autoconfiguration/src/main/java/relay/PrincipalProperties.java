@@ -0,0 +1,19 @@
+package relay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("relay.principal")
+public class PrincipalProperties {
+
+ // e.g. http://auth-service/uaa/principal/v1; setting it replaces the
+ // userInfoUri lookup with auth-service's compact principal
+ private String uri;
+
+ // resolve the auth-service host through the load balancer
+ private boolean loadBalanced = true;
+
+ // principals kept around for ETag revalidation
+ private long maxSize = 10_000;
+}
@@ -0,0 +1,74 @@
+package relay;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+//@formatter:on
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure
+        .condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties
+        .EnableConfigurationProperties;
+//@formatter:off
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+//@formatter:on
+import org.springframework.security.oauth2.provider.token
+        .AuthorizationServerTokenServices;
+import org.springframework.security.oauth2.provider.token
+        .ConsumerTokenServices;
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:off
+
+@Configuration
+@ConditionalOnWebApplication
+@ConditionalOnClass(ResourceServerTokenServices.class)
+@ConditionalOnProperty(value = "relay.token-cache.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(TokenCacheProperties.class)
+public class TokenCacheAutoConfiguration {
+
+ // wraps whatever token services the resource server ends up with, be it
+ // the userInfoUri based one or a local one. token services that also issue
+ // or revoke tokens (an authorization server's DefaultTokenServices) are
+ // left alone: they check tokens locally anyway, and a wrapper would hide
+ // their other interfaces from everyone injecting them.
+ @Bean
+ static BeanPostProcessor cachingTokenServicesPostProcessor() {
+  return new CachingTokenServicesPostProcessor();
+ }
+
+ private static class CachingTokenServicesPostProcessor implements
+  BeanPostProcessor, BeanFactoryAware {
+
+  private BeanFactory beanFactory;
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+   this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+   return bean;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+   if (bean instanceof ResourceServerTokenServices
+    && !(bean instanceof CachingResourceServerTokenServices)
+    && !(bean instanceof AuthorizationServerTokenServices)
+    && !(bean instanceof ConsumerTokenServices)) {
+    // looked up late, so the properties are bound by now
+    return new CachingResourceServerTokenServices(
+     (ResourceServerTokenServices) bean, this.beanFactory
+      .getBean(TokenCacheProperties.class));
+   }
+   return bean;
+  }
+ }
+}
@@ -0,0 +1,19 @@
+package relay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("relay.token-cache")
+public class TokenCacheProperties {
+
+ private boolean enabled = true;
+
+ private long maxSize = 10_000;
+
+ // how long a resolved token is trusted, at most until it expires (ms)
+ private long ttl = 60_000;
+
+ // how long a token that was rejected stays rejected (ms)
+ private long negativeTtl = 5_000;
+}
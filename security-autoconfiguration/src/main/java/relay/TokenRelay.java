@@ -0,0 +1,205 @@
+package relay;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+//@formatter:on
+import org.springframework.boot.autoconfigure
+        .security.oauth2.resource.UserInfoRestTemplateFactory;
+import org.springframework.security
+        .oauth2.client.OAuth2ClientContext;
+import org.springframework.security
+        .oauth2.client.resource.OAuth2ProtectedResourceDetails;
+import org.springframework.security
+        .oauth2.client.token.AccessTokenProvider;
+import org.springframework.security
+        .oauth2.client.token.DefaultAccessTokenRequest;
+//@formatter:off
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// what Feign and the OAuth2RestTemplate put in the Authorization header.
+// the header is formatted once per token, and a token that can be refreshed
+// is refreshed in the background once it gets within refreshAhead of
+// expiring, so callers swap to the new token before the old one runs out
+// instead of stalling on a refresh themselves.
+public class TokenRelay {
+
+ private final Log log = LogFactory.getLog(getClass());
+
+ private final ObjectProvider<UserInfoRestTemplateFactory> restTemplateFactory;
+
+ private final AccessTokenProvider accessTokenProvider;
+
+ private final long refreshAhead;
+
+ private final Cache<String, String> headers;
+
+ // keyed by the token being replaced
+ private final Cache<String, CompletableFuture<OAuth2AccessToken>> refreshes;
+
+ // tokens handed to bind()ed tasks, by worker thread
+ private final ThreadLocal<Optional<OAuth2AccessToken>> bound =
+  new ThreadLocal<>();
+
+ private final ExecutorService executor = Executors
+  .newSingleThreadExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "token-relay");
+   thread.setDaemon(true);
+   return thread;
+  });
+
+ public TokenRelay(
+  ObjectProvider<UserInfoRestTemplateFactory> restTemplateFactory,
+  AccessTokenProvider accessTokenProvider, TokenRelayProperties properties) {
+  this.restTemplateFactory = restTemplateFactory;
+  this.accessTokenProvider = accessTokenProvider;
+  this.refreshAhead = properties.getRefreshAhead();
+  this.headers = CacheBuilder.newBuilder()
+   .maximumSize(properties.getHeaderCacheSize())
+   .expireAfterAccess(Math.max(this.refreshAhead, 60_000) * 2,
+    TimeUnit.MILLISECONDS).build();
+  this.refreshes = CacheBuilder.newBuilder()
+   .maximumSize(properties.getHeaderCacheSize())
+   .expireAfterWrite(Math.max(this.refreshAhead, 60_000) * 2,
+    TimeUnit.MILLISECONDS).build();
+ }
+
+ @PreDestroy
+ public void stop() {
+  this.executor.shutdownNow();
+ }
+
+ // the Authorization header for the context's token, or null without one.
+ public String authorization(OAuth2ClientContext context) {
+  OAuth2AccessToken token = this.accessToken(context);
+  if (token == null) {
+   return null;
+  }
+  String header = this.headers.getIfPresent(token.getValue());
+  if (header == null) {
+   header = this.headers.asMap().computeIfAbsent(token.getValue(),
+    value -> tokenType(token) + ' ' + value);
+  }
+  return header;
+ }
+
+ // resolves the context's token now, on the calling request thread, for a
+ // task that may run on another thread once the request scope is gone
+ public <T> Callable<T> bind(OAuth2ClientContext context, Callable<T> task) {
+  Optional<OAuth2AccessToken> token = Optional.ofNullable(this
+   .accessToken(context));
+  return () -> {
+   Optional<OAuth2AccessToken> previous = this.bound.get();
+   this.bound.set(token);
+   try {
+    return task.call();
+   }
+   finally {
+    if (previous == null) {
+     this.bound.remove();
+    }
+    else {
+     this.bound.set(previous);
+    }
+   }
+  };
+ }
+
+ // the token to relay, or null without one. on the request thread a
+ // refreshed token is put back into the (request or session scoped) context
+ // here. inside a bind()ed task the token bound on the request thread is
+ // used and the context is never touched; anywhere else off the request
+ // thread there is no context to read, so tasks have to be bound.
+ public OAuth2AccessToken accessToken(OAuth2ClientContext context) {
+  Optional<OAuth2AccessToken> bound = this.bound.get();
+  return bound != null ? bound.orElse(null) : this.resolve(context);
+ }
+
+ // whether this thread runs a bind()ed task
+ public boolean isBound() {
+  return this.bound.get() != null;
+ }
+
+ private OAuth2AccessToken resolve(OAuth2ClientContext context) {
+  OAuth2AccessToken token = context.getAccessToken();
+  if (token == null) {
+   return null;
+  }
+  OAuth2AccessToken current = this.current(token);
+  if (current != token) {
+   context.setAccessToken(current);
+  }
+  return current;
+ }
+
+ private OAuth2AccessToken current(OAuth2AccessToken token) {
+  if (token.getRefreshToken() == null || token.getExpiration() == null) {
+   return token;
+  }
+  long remaining = token.getExpiration().getTime()
+   - System.currentTimeMillis();
+  if (remaining > this.refreshAhead) {
+   return token;
+  }
+  CompletableFuture<OAuth2AccessToken> refresh = this.refreshes.asMap()
+   .computeIfAbsent(token.getValue(), key -> this.refresh(token));
+  if (refresh.isDone() && !refresh.isCompletedExceptionally()) {
+   return refresh.join();
+  }
+  if (remaining > 0) {
+   // still good, keep using it until the new one arrives
+   return token;
+  }
+  // too late to hide it; wait for the refresh already in flight rather
+  // than starting another one on this thread
+  try {
+   return refresh.get();
+  }
+  catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   return token;
+  }
+  catch (ExecutionException e) {
+   return token;
+  }
+ }
+
+ private CompletableFuture<OAuth2AccessToken> refresh(OAuth2AccessToken token) {
+  CompletableFuture<OAuth2AccessToken> refresh = CompletableFuture.supplyAsync(
+   () -> {
+    OAuth2ProtectedResourceDetails resource = this.restTemplateFactory
+     .getObject().getUserInfoRestTemplate().getResource();
+    return this.accessTokenProvider.refreshAccessToken(resource,
+     token.getRefreshToken(), new DefaultAccessTokenRequest());
+   }, this.executor);
+  refresh.whenCompleteAsync((refreshed, e) -> {
+   if (e != null) {
+    // forget it so the next call tries again
+    this.log.warn("couldn't refresh the access token", e);
+    this.refreshes.asMap().remove(token.getValue(), refresh);
+   }
+  }, this.executor);
+  return refresh;
+ }
+
+ private static String tokenType(OAuth2AccessToken token) {
+  String tokenType = token.getTokenType();
+  if (!StringUtils.hasText(tokenType)
+   || tokenType.equalsIgnoreCase(OAuth2AccessToken.BEARER_TYPE)) {
+   return OAuth2AccessToken.BEARER_TYPE;
+  }
+  return tokenType;
+ }
+}
@@ -2,16 +2,25 @@
 package relay;
 
 import feign.RequestInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
 
 //@formatter:on
+import org.springframework.boot.autoconfigure
+        .AutoConfigureBefore;
 import org.springframework.boot.autoconfigure
         .condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure
         .condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure
         .condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.OAuth2AutoConfiguration;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.resource.UserInfoRestTemplateCustomizer;
 import org.springframework.boot.autoconfigure
         .security.oauth2.resource.UserInfoRestTemplateFactory;
+import org.springframework.boot.context.properties
+        .EnableConfigurationProperties;
 //@formatter:off
 
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
@@ -20,6 +29,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 
 //@formatter:on
 import org.springframework.security
@@ -28,14 +38,33 @@ import org.springframework.security
         .oauth2.client.OAuth2RestTemplate;
 import org.springframework.security
         .oauth2.client.filter.OAuth2ClientContextFilter;
+import org.springframework.security
+        .oauth2.client.resource.OAuth2ProtectedResourceDetails;
+import org.springframework.security
+        .oauth2.client.token.AccessTokenProviderChain;
+import org.springframework.security
+        .oauth2.client.token.OAuth2AccessTokenSupport;
+import org.springframework.security
+        .oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
+import org.springframework.security
+        .oauth2.client.token.grant.code.AuthorizationCodeAccessTokenProvider;
+import org.springframework.security
+        .oauth2.client.token.grant.implicit.ImplicitAccessTokenProvider;
+import org.springframework.security
+        .oauth2.client.token.grant.password.ResourceOwnerPasswordAccessTokenProvider;
 import org.springframework.security
         .oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.web.client.RestTemplate;
 //@formatter:off
 
+import java.util.Arrays;
+import java.util.List;
+
 @Configuration
 @ConditionalOnWebApplication
 @ConditionalOnClass(EnableResourceServer.class)
+@AutoConfigureBefore(OAuth2AutoConfiguration.class)
+@EnableConfigurationProperties(TokenRelayProperties.class)
 public class TokenRelayAutoConfiguration {
 
  public static final String SECURE_PROFILE = "secure";
@@ -47,8 +76,30 @@ public class TokenRelayAutoConfiguration {
   // <1>
   @Bean
   @LoadBalanced
-  RestTemplate simpleRestTemplate() {
-   return new RestTemplate();
+  RestTemplate simpleRestTemplate(
+   HttpComponentsClientHttpRequestFactory requestFactory) {
+   return new RestTemplate(requestFactory);
+  }
+ }
+
+ @Configuration
+ @Profile(SECURE_PROFILE)
+ public static class TokenRelayConfiguration {
+
+  // refreshes go through the pooled client, like everything else
+  @Bean
+  TokenRelay tokenRelay(
+   ObjectProvider<UserInfoRestTemplateFactory> restTemplateFactory,
+   HttpComponentsClientHttpRequestFactory requestFactory,
+   TokenRelayProperties properties) {
+   List<OAuth2AccessTokenSupport> providers = Arrays.asList(
+    new AuthorizationCodeAccessTokenProvider(),
+    new ImplicitAccessTokenProvider(),
+    new ResourceOwnerPasswordAccessTokenProvider(),
+    new ClientCredentialsAccessTokenProvider());
+   providers.forEach(p -> p.setRequestFactory(requestFactory));
+   return new TokenRelay(restTemplateFactory, new AccessTokenProviderChain(
+    providers), properties);
   }
  }
 
@@ -56,12 +107,25 @@ public class TokenRelayAutoConfiguration {
  @Profile(SECURE_PROFILE)
  public static class SecureRestTemplateConfiguration {
 
+  // in place of Boot's, so the template takes its token from the relay
+  @Bean
+  UserInfoRestTemplateFactory userInfoRestTemplateFactory(
+   ObjectProvider<List<UserInfoRestTemplateCustomizer>> customizers,
+   ObjectProvider<OAuth2ProtectedResourceDetails> details,
+   ObjectProvider<OAuth2ClientContext> clientContext, TokenRelay tokenRelay) {
+   return new TokenRelayRestTemplateFactory(customizers, details,
+    clientContext, tokenRelay);
+  }
+
   // <2>
   @Bean
   @Lazy
   @LoadBalanced
-  OAuth2RestTemplate anOAuth2RestTemplate( UserInfoRestTemplateFactory factory) {
-   return factory.getUserInfoRestTemplate();
+  OAuth2RestTemplate anOAuth2RestTemplate( UserInfoRestTemplateFactory factory,
+   HttpComponentsClientHttpRequestFactory requestFactory) {
+   OAuth2RestTemplate restTemplate = factory.getUserInfoRestTemplate();
+   restTemplate.setRequestFactory(requestFactory);
+   return restTemplate;
   }
  }
 
@@ -73,10 +137,14 @@ public class TokenRelayAutoConfiguration {
 
   // <3>
   @Bean
-  RequestInterceptor requestInterceptor(OAuth2ClientContext clientContext ) {
-  return requestTemplate -> requestTemplate.header(HttpHeaders.AUTHORIZATION,
-    clientContext.getAccessToken().getTokenType() + ' '
-     + clientContext.getAccessToken().getValue());
+  RequestInterceptor requestInterceptor(OAuth2ClientContext clientContext,
+   TokenRelay tokenRelay) {
+   return requestTemplate -> {
+    String authorization = tokenRelay.authorization(clientContext);
+    if (authorization != null) {
+     requestTemplate.header(HttpHeaders.AUTHORIZATION, authorization);
+    }
+   };
   }
  }
 }
@@ -0,0 +1,15 @@
+package relay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("relay.token")
+public class TokenRelayProperties {
+
+ // refresh a token in the background once it's this close to expiry (ms)
+ private long refreshAhead = 60_000;
+
+ // formatted Authorization headers kept around, one per token
+ private long headerCacheSize = 10_000;
+}
@@ -0,0 +1,45 @@
+package relay;
+
+import org.springframework.http.HttpHeaders;
+//@formatter:on
+import org.springframework.security
+        .oauth2.client.OAuth2ClientContext;
+import org.springframework.security
+        .oauth2.client.OAuth2RestTemplate;
+import org.springframework.security
+        .oauth2.client.resource.OAuth2ProtectedResourceDetails;
+//@formatter:off
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+
+// an OAuth2RestTemplate that takes its token from the TokenRelay. the
+// stock one resolves the token before any authenticator runs and refreshes
+// an expired one right there, on the calling thread; this one only falls
+// back to that when the relay has nothing usable, i.e. the relay's own
+// refresh failed or there never was a token.
+class TokenRelayRestTemplate extends OAuth2RestTemplate {
+
+ private final TokenRelay tokenRelay;
+
+ TokenRelayRestTemplate(OAuth2ProtectedResourceDetails resource,
+  OAuth2ClientContext context, TokenRelay tokenRelay) {
+  super(resource, context);
+  this.tokenRelay = tokenRelay;
+  this.setAuthenticator((details, clientContext, request) -> {
+   String authorization = tokenRelay.authorization(clientContext);
+   if (authorization != null) {
+    request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+   }
+  });
+ }
+
+ @Override
+ public OAuth2AccessToken getAccessToken() {
+  OAuth2AccessToken token = this.tokenRelay.accessToken(this
+   .getOAuth2ClientContext());
+  // a bound task can't reach the context to acquire one anyway
+  if (token != null && !token.isExpired() || this.tokenRelay.isBound()) {
+   return token;
+  }
+  return super.getAccessToken();
+ }
+}
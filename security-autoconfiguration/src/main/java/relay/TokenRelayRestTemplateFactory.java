@@ -0,0 +1,97 @@
+package relay;
+
+import org.springframework.beans.factory.ObjectProvider;
+//@formatter:on
+import org.springframework.boot.autoconfigure
+        .security.oauth2.resource.UserInfoRestTemplateCustomizer;
+import org.springframework.boot.autoconfigure
+        .security.oauth2.resource.UserInfoRestTemplateFactory;
+//@formatter:off
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.MediaType;
+//@formatter:on
+import org.springframework.security
+        .oauth2.client.DefaultOAuth2ClientContext;
+import org.springframework.security
+        .oauth2.client.OAuth2ClientContext;
+import org.springframework.security
+        .oauth2.client.OAuth2RestTemplate;
+import org.springframework.security
+        .oauth2.client.resource.OAuth2ProtectedResourceDetails;
+import org.springframework.security
+        .oauth2.client.token.grant.code.AuthorizationCodeAccessTokenProvider;
+import org.springframework.security
+        .oauth2.client.token.grant.code.AuthorizationCodeResourceDetails;
+//@formatter:off
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Boot's user info template, made the way DefaultUserInfoRestTemplateFactory
+// makes it, except that it is a TokenRelayRestTemplate. it has to be the
+// same template: the user info token services and the load-balanced
+// OAuth2RestTemplate bean share it.
+class TokenRelayRestTemplateFactory implements UserInfoRestTemplateFactory {
+
+ private final ObjectProvider<List<UserInfoRestTemplateCustomizer>> customizers;
+
+ private final ObjectProvider<OAuth2ProtectedResourceDetails> details;
+
+ private final ObjectProvider<OAuth2ClientContext> clientContext;
+
+ private final TokenRelay tokenRelay;
+
+ private OAuth2RestTemplate restTemplate;
+
+ TokenRelayRestTemplateFactory(
+  ObjectProvider<List<UserInfoRestTemplateCustomizer>> customizers,
+  ObjectProvider<OAuth2ProtectedResourceDetails> details,
+  ObjectProvider<OAuth2ClientContext> clientContext, TokenRelay tokenRelay) {
+  this.customizers = customizers;
+  this.details = details;
+  this.clientContext = clientContext;
+  this.tokenRelay = tokenRelay;
+ }
+
+ @Override
+ public synchronized OAuth2RestTemplate getUserInfoRestTemplate() {
+  if (this.restTemplate == null) {
+   OAuth2ProtectedResourceDetails details = this.details.getIfAvailable();
+   OAuth2ClientContext clientContext = this.clientContext.getIfAvailable();
+   OAuth2RestTemplate restTemplate = new TokenRelayRestTemplate(
+    details != null ? details : defaultDetails(),
+    clientContext != null ? clientContext : new DefaultOAuth2ClientContext(),
+    this.tokenRelay);
+   restTemplate.getInterceptors().add((request, body, execution) -> {
+    request.getHeaders().setAccept(Collections.singletonList(
+     MediaType.APPLICATION_JSON));
+    return execution.execute(request, body);
+   });
+   AuthorizationCodeAccessTokenProvider accessTokenProvider =
+    new AuthorizationCodeAccessTokenProvider();
+   accessTokenProvider.setTokenRequestEnhancer((request, resource, form,
+    headers) -> headers.setAccept(Collections.singletonList(
+     MediaType.APPLICATION_JSON)));
+   restTemplate.setAccessTokenProvider(accessTokenProvider);
+   List<UserInfoRestTemplateCustomizer> customizers = this.customizers
+    .getIfAvailable();
+   if (customizers != null) {
+    customizers = new ArrayList<>(customizers);
+    AnnotationAwareOrderComparator.sort(customizers);
+    customizers.forEach(customizer -> customizer.customize(restTemplate));
+   }
+   this.restTemplate = restTemplate;
+  }
+  return this.restTemplate;
+ }
+
+ private static OAuth2ProtectedResourceDetails defaultDetails() {
+  AuthorizationCodeResourceDetails details =
+   new AuthorizationCodeResourceDetails();
+  details.setClientId("<N/A>");
+  details.setUserAuthorizationUri("Not a URI because there is no client");
+  details.setAccessTokenUri("Not a URI because there is no client");
+  return details;
+ }
+}
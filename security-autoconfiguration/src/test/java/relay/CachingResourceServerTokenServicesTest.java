@@ -0,0 +1,58 @@
+package relay;
+
+import org.junit.Test;
+//@formatter:off
+import org.springframework.security.authentication
+        .UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token
+        .ResourceServerTokenServices;
+//@formatter:on
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingResourceServerTokenServicesTest {
+
+ @Test
+ public void everyLoadGetsItsOwnAuthentication() throws Exception {
+  ResourceServerTokenServices delegate = mock(
+   ResourceServerTokenServices.class);
+  OAuth2Authentication resolved = authentication("josh");
+  resolved.setDetails("resolved");
+  when(delegate.loadAuthentication("token")).thenReturn(resolved);
+  CachingResourceServerTokenServices tokenServices =
+   new CachingResourceServerTokenServices(delegate,
+    new TokenCacheProperties());
+
+  OAuth2Authentication first = tokenServices.loadAuthentication("token");
+  OAuth2Authentication second = tokenServices.loadAuthentication("token");
+
+  verify(delegate, times(1)).loadAuthentication("token");
+  assertThat(first).isNotSameAs(second).isNotSameAs(resolved);
+  assertThat(second.getName()).isEqualTo("josh");
+  assertThat(second.getOAuth2Request()).isEqualTo(resolved.getOAuth2Request());
+
+  // as OAuth2AuthenticationManager does with each request's own details
+  first.setDetails("first request");
+  assertThat(second.getDetails()).isEqualTo("resolved");
+  assertThat(tokenServices.loadAuthentication("token").getDetails())
+   .isEqualTo("resolved");
+ }
+
+ private static OAuth2Authentication authentication(String name) {
+  OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client",
+   Collections.emptyList(), true, Collections.singleton("openid"),
+   Collections.emptySet(), null, Collections.emptySet(),
+   Collections.emptyMap());
+  return new OAuth2Authentication(request,
+   new UsernamePasswordAuthenticationToken(name, "N/A",
+    Collections.emptyList()));
+ }
+}
@@ -0,0 +1,51 @@
+package relay;
+
+import feign.Client;
+import feign.Request;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PooledHttpClientTest {
+
+ @Test
+ public void feignCallFailsFastOnASaturatedPool() throws Exception {
+  HttpClientProperties properties = new HttpClientProperties();
+  properties.setMaxTotal(1);
+  properties.setMaxPerRoute(1);
+  properties.setConnectionRequestTimeout(100);
+  HttpClientAutoConfiguration configuration =
+   new HttpClientAutoConfiguration();
+  PoolingHttpClientConnectionManager connectionManager = configuration
+   .relayConnectionManager(properties);
+  try (CloseableHttpClient httpClient = configuration.relayHttpClient(
+   connectionManager, properties)) {
+   // the pool's only connection is leased and never given back
+   HttpClientConnection leased = connectionManager.requestConnection(
+    new HttpRoute(new HttpHost("localhost", 9)), null).get(1,
+    TimeUnit.SECONDS);
+   assertThat(leased).isNotNull();
+
+   // as Feign calls it: with a RequestConfig of its own, built from options
+   Client feign = new ApacheHttpClient(httpClient);
+   Request request = Request.create("GET", "http://localhost:9/",
+    Collections.emptyMap(), null, null);
+   long start = System.nanoTime();
+   assertThatThrownBy(() -> feign.execute(request, new Request.Options(
+    10_000, 10_000))).isInstanceOf(ConnectionPoolTimeoutException.class);
+   assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+    .isLessThan(5_000);
+  }
+ }
+}